@@ -0,0 +1,41 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+public final class Bench {
+
+	/**
+	 * Lanzador de los benchmarks.
+	 *
+	 * Acepta las mismas opciones que org.openjdk.jmh.Main, pero agrega
+	 * siempre el profiler de GC, para que cada resultado venga
+	 * acompañado de la tasa de asignacion de memoria por operacion
+	 * (gc.alloc.rate.norm). Es la cifra que nos avisa de regresiones en
+	 * la propagacion antes incluso de que se noten en los tiempos.
+	 */
+
+	private Bench() { }
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmdline = new CommandLineOptions(args);
+		if(cmdline.shouldHelp()) {
+			cmdline.showHelp();
+			return;
+		}
+		Options options = new OptionsBuilder()
+				.parent(cmdline)
+				.addProfiler(GCProfiler.class)
+				.build();
+		Runner runner = new Runner(options);
+		if(cmdline.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+}
@@ -0,0 +1,43 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CacheBench {
+
+	/** Benchmark de construccion de las tablas de Cache para cada lado,
+	 * frente a pedir la instancia compartida (Cache.forSide).
+	 */
+
+	@Param({ "2", "3", "4", "5" })
+	public int side;
+
+	@Benchmark
+	public Cache build() {
+		return new Cache(side);
+	}
+
+	@Benchmark
+	public Cache registry() {
+		return Cache.forSide(side);
+	}
+}
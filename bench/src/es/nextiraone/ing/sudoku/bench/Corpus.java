@@ -0,0 +1,113 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public final class Corpus {
+
+	/**
+	 * Coleccion de sudokus de prueba para los benchmarks.
+	 *
+	 * Los sudokus se empaquetan como recursos (easy.txt, hard.txt,
+	 * 17clue.txt), uno por linea, con 81 caracteres por sudoku y
+	 * '0' o '.' para las celdas vacias. Las lineas en blanco y las
+	 * que empiezan por '#' se ignoran.
+	 *
+	 * Cada sudoku esta disponible tal cual (getLine) y en el formato
+	 * con separadores de siempre (getText).
+	 */
+
+	// nombres de los corpus disponibles, para los @Param
+	public static final String EASY   = "easy";
+	public static final String HARD   = "hard";
+	public static final String CLUE17 = "17clue";
+
+	private final Cache cache;
+	private final String[] lines;
+	private final String[] texts;
+
+	public Corpus(final Cache cache, final String name) throws IOException {
+		this.cache = cache;
+		this.lines = load(name);
+		this.texts = new String[lines.length];
+		for(int i = 0; i < lines.length; i++) {
+			texts[i] = separate(lines[i]);
+		}
+	}
+
+	public int size() {
+		return texts.length;
+	}
+
+	public String getLine(final int index) {
+		/** Devuelve el sudoku tal cual esta en el corpus (formato compacto) */
+		return lines[index];
+	}
+
+	public String getText(final int index) {
+		/** Devuelve el sudoku en el formato que entiende Sudoku.fromString */
+		return texts[index];
+	}
+
+	public Sudoku getSudoku(final int index) throws DeadEndException {
+		/** Devuelve el sudoku ya cargado (y propagado) */
+		return Sudoku.fromString(cache, texts[index]);
+	}
+
+	public List<Fix> getFixes(final int index) {
+		/** Devuelve las pistas del sudoku como una lista de Fix */
+		List<Fix> fixes = new ArrayList<Fix>();
+		String text = texts[index];
+		int offset  = 0;
+		for(int i = 0; i < text.length(); i += 2, offset++) {
+			int value = text.charAt(i) - '0';
+			if(value != 0)
+				fixes.add(new Fix(cache, offset, value));
+		}
+		return fixes;
+	}
+
+	private static final String[] load(final String name) throws IOException {
+		/** Carga el corpus de los recursos empaquetados con los benchmarks */
+		InputStream stream = Corpus.class.getResourceAsStream(name + ".txt");
+		if(stream == null) {
+			throw new IOException("No existe el corpus " + name);
+		}
+		List<String> out = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(stream, Charset.forName("US-ASCII")));
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.length() == 0 || line.charAt(0) == '#')
+					continue;
+				out.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return out.toArray(new String[out.size()]);
+	}
+
+	private static final String separate(final String line) {
+		/** Traduce "003020600..." a "0 0 3 0 2 0 6 0 0 ..." */
+		StringBuilder buffer = new StringBuilder(line.length() * 2);
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			buffer.append(c == '.' ? '0' : c).append(' ');
+		}
+		return buffer.toString();
+	}
+}
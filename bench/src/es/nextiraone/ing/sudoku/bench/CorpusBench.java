@@ -0,0 +1,59 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class CorpusBench {
+
+	/**
+	 * Base de los benchmarks que trabajan sobre un corpus de sudokus.
+	 *
+	 * Cada invocacion del benchmark procesa un sudoku del corpus, y
+	 * las invocaciones sucesivas van rotando por todos ellos, de manera
+	 * que la cifra por operacion es la media sobre todo el corpus.
+	 */
+
+	@Param({ Corpus.EASY, Corpus.HARD, Corpus.CLUE17 })
+	public String corpus;
+
+	protected Cache cache;
+	protected Corpus puzzles;
+	private int index;
+
+	@Setup
+	public void loadCorpus() throws Exception {
+		cache   = Cache.forSide(3);
+		puzzles = new Corpus(cache, corpus);
+		index   = 0;
+		mySetUp();
+	}
+
+	protected void mySetUp() throws Exception { }
+
+	protected final int next() {
+		/** Devuelve el indice del siguiente sudoku del corpus */
+		int current = index;
+		index = (index + 1 == puzzles.size()) ? 0 : index + 1;
+		return current;
+	}
+}
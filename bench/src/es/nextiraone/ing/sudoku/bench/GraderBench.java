@@ -0,0 +1,45 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Grader;
+import es.nextiraone.ing.sudoku.core.Parser;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class GraderBench extends CorpusBench {
+
+	/**
+	 * Coste de calificar un sudoku del corpus (Grader.grade).
+	 *
+	 * Los sudokus se cargan sin heuristica (Parser.load), que es lo que
+	 * espera el Grader. solve mide lo mismo con Sudoku.solve, para
+	 * comparar el coste de calificar con el de simplemente resolver.
+	 */
+
+	private Sudoku[] loaded;
+	private Grader grader;
+
+	@Override
+	protected void mySetUp() throws Exception {
+		Parser parser = new Parser(cache);
+		loaded = new Sudoku[puzzles.size()];
+		for(int i = 0; i < puzzles.size(); i++) {
+			String text = puzzles.getText(i);
+			loaded[i]   = new Sudoku(cache);
+			parser.load(loaded[i], text, 0, text.length());
+		}
+		grader = new Grader();
+	}
+
+	@Benchmark
+	public Grader.Grade grade() {
+		return grader.grade(loaded[next()]);
+	}
+
+	@Benchmark
+	public Sudoku solve() throws DeadEndException {
+		return loaded[next()].solve();
+	}
+}
@@ -0,0 +1,58 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.Pipeline;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class PipelineBench extends CorpusBench {
+
+	/**
+	 * Compara los pipelines de estrategias de Sudoku.heuristic().
+	 *
+	 * Mide la heuristica sobre las pistas del sudoku, y la busqueda
+	 * completa (countSolutions), donde la heuristica se aplica en cada
+	 * nodo: un pipeline mas caro puede compensar si poda el arbol.
+	 */
+
+	@Param({ "SUBSETS", "BASIC", "FULL" })
+	public String pipeline;
+
+	private Pipeline selected;
+	private List<Fix>[] fixes;
+	private Sudoku[] loaded;
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mySetUp() throws Exception {
+		selected = (Pipeline) Pipeline.class.getField(pipeline).get(null);
+		fixes    = new List[puzzles.size()];
+		loaded   = new Sudoku[puzzles.size()];
+		for(int i = 0; i < puzzles.size(); i++) {
+			fixes[i]  = puzzles.getFixes(i);
+			loaded[i] = puzzles.getSudoku(i);
+			loaded[i].setPipeline(selected);
+		}
+	}
+
+	@Benchmark
+	public Sudoku heuristic() throws DeadEndException {
+		Sudoku sudoku = new Sudoku(cache);
+		sudoku.setPipeline(selected);
+		sudoku.fix(fixes[next()]);
+		return sudoku;
+	}
+
+	@Benchmark
+	public SolutionCount countSolutions() {
+		return Solutions.countSolutions(loaded[next()], Long.MAX_VALUE);
+	}
+}
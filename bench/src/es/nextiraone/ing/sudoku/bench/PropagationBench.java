@@ -0,0 +1,55 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class PropagationBench extends CorpusBench {
+
+	/**
+	 * Benchmark de la propagacion pura (Sudoku.fix(offset, value)).
+	 *
+	 * Reutiliza siempre el mismo sudoku, vaciandolo con reset() antes
+	 * de fijar las pistas, asi que el unico trabajo que se mide es la
+	 * eliminacion en cascada de valores de las celdas vecinas. Lanzado
+	 * con el profiler de GC, gc.alloc.rate.norm deberia ser ~0 B/op:
+	 * la propagacion no debe reservar memoria.
+	 */
+
+	private int[][] offsets;
+	private int[][] values;
+	private Sudoku sudoku;
+
+	@Override
+	protected void mySetUp() throws Exception {
+		offsets = new int[puzzles.size()][];
+		values  = new int[puzzles.size()][];
+		for(int i = 0; i < puzzles.size(); i++) {
+			List<Fix> fixes = puzzles.getFixes(i);
+			offsets[i] = new int[fixes.size()];
+			values[i]  = new int[fixes.size()];
+			for(int j = 0; j < fixes.size(); j++) {
+				offsets[i][j] = fixes.get(j).getOffset();
+				values[i][j]  = fixes.get(j).getValue();
+			}
+		}
+		sudoku = new Sudoku(cache);
+	}
+
+	@Benchmark
+	public Sudoku propagate() throws DeadEndException {
+		int index = next();
+		int[] offset = offsets[index];
+		int[] value  = values[index];
+		sudoku.reset();
+		for(int i = 0; i < offset.length; i++) {
+			sudoku.fix(offset[i], value[i]);
+		}
+		return sudoku;
+	}
+}
@@ -0,0 +1,109 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import es.nextiraone.ing.sudoku.core.Bitboard9;
+import es.nextiraone.ing.sudoku.core.DancingLinks;
+import es.nextiraone.ing.sudoku.core.ParallelSolutions;
+import es.nextiraone.ing.sudoku.core.SearchConfig;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class SolutionsBench extends CorpusBench {
+
+	/**
+	 * Benchmarks de busqueda de soluciones.
+	 *
+	 * Parten del sudoku ya cargado, de manera que solo miden el
+	 * trabajo de Solutions: encontrar la primera solucion, o
+	 * recorrer el arbol completo contando todas las soluciones (en
+	 * serie, o en paralelo con ParallelSolutions sobre el pool comun).
+	 * Tambien mide la comprobacion de unicidad (countSolutions con
+	 * limite 2), que no copia ni randomiza nada.
+	 *
+	 * Los benchmarks dlx* hacen lo mismo con el motor DancingLinks,
+	 * para poder elegir motor segun el tipo de trabajo, y los
+	 * bitboard* con el motor especializado para 9x9 (Bitboard9), que
+	 * es el que usa Sudoku.solve cuando el lado es 3.
+	 *
+	 * Las busquedas aleatorias usan una semilla fija (SEARCH), para
+	 * que cada puzzle recorra el mismo arbol en todas las ejecuciones
+	 * y los resultados se puedan comparar entre versiones.
+	 */
+
+	private static final SearchConfig SEARCH = SearchConfig.seeded(0x5EEDL);
+
+	private Sudoku[] loaded;
+
+	@Override
+	protected void mySetUp() throws Exception {
+		loaded = new Sudoku[puzzles.size()];
+		for(int i = 0; i < puzzles.size(); i++) {
+			loaded[i] = puzzles.getSudoku(i);
+		}
+	}
+
+	@Benchmark
+	public Sudoku firstSolution() {
+		Solutions solutions = new Solutions(loaded[next()], SEARCH);
+		return solutions.hasNext() ? solutions.next() : null;
+	}
+
+	@Benchmark
+	public int allSolutions() {
+		Solutions solutions = new Solutions(loaded[next()], SEARCH);
+		int found = 0;
+		for(; solutions.hasNext(); found++) {
+			solutions.next();
+		}
+		return found;
+	}
+
+	@Benchmark
+	public long parallelCount() {
+		return new ParallelSolutions(loaded[next()], SEARCH).count();
+	}
+
+	@Benchmark
+	public SolutionCount countSolutions() {
+		return Solutions.countSolutions(loaded[next()], Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public boolean hasUniqueSolution() {
+		return Solutions.hasUniqueSolution(loaded[next()]);
+	}
+
+	@Benchmark
+	public Sudoku dlxFirstSolution() {
+		DancingLinks solutions = new DancingLinks(loaded[next()]);
+		return solutions.hasNext() ? solutions.next() : null;
+	}
+
+	@Benchmark
+	public SolutionCount dlxCountSolutions() {
+		return DancingLinks.countSolutions(loaded[next()], Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public boolean dlxHasUniqueSolution() {
+		return DancingLinks.hasUniqueSolution(loaded[next()]);
+	}
+
+	@Benchmark
+	public Sudoku bitboardFirstSolution() {
+		return Bitboard9.solve(loaded[next()]);
+	}
+
+	@Benchmark
+	public SolutionCount bitboardCountSolutions() {
+		return Bitboard9.countSolutions(loaded[next()], Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public boolean bitboardHasUniqueSolution() {
+		return Bitboard9.hasUniqueSolution(loaded[next()]);
+	}
+}
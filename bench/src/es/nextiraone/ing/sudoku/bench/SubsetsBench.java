@@ -0,0 +1,60 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.CombinedSubsets;
+import es.nextiraone.ing.sudoku.core.Pipeline;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubsetsBench {
+
+	/**
+	 * Coste de CombinedSubsets segun el limite de tamaño de los subconjuntos.
+	 *
+	 * Busca la primera solucion de un sudoku vacio (sin barajar, para
+	 * que todas las invocaciones hagan el mismo trabajo) usando solo
+	 * la logica combinatoria como heuristica. En un 16x16 sin limite
+	 * tarda varios segundos, por eso no esta entre los parametros.
+	 */
+
+	@Param({ "3", "4" })
+	public int side;
+
+	@Param({ "2", "3", "4", "6" })
+	public int limit;
+
+	private Sudoku empty;
+
+	@Setup
+	public void setUp() {
+		empty = new Sudoku(Cache.forSide(side));
+		empty.setPipeline(new Pipeline(new CombinedSubsets(limit)));
+	}
+
+	@Benchmark
+	public Sudoku firstSolution() {
+		Solutions solutions = new Solutions(empty, false);
+		return solutions.hasNext() ? solutions.next() : null;
+	}
+}
@@ -0,0 +1,68 @@
+package es.nextiraone.ing.sudoku.bench;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.Parser;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class SudokuBench extends CorpusBench {
+
+	/**
+	 * Benchmarks de carga y propagacion de un sudoku.
+	 *
+	 * - fromString: parseo del texto mas fijado de las pistas.
+	 * - parseCompact: lo mismo, con un Parser reutilizado y el sudoku
+	 *   en formato compacto (una linea de 81 caracteres).
+	 * - fix: fijado de las pistas (ya parseadas) sobre un sudoku vacio,
+	 *   incluyendo la propagacion y la heuristica.
+	 * - heuristic: una pasada de heuristica sobre un sudoku ya cargado.
+	 *   Como el sudoku ya esta estable, mide el coste de recorrer todos
+	 *   los grupos sin encontrar nada nuevo, que es lo que paga cada
+	 *   rama de Solutions al final de su propagacion.
+	 */
+
+	private List<Fix>[] fixes;
+	private Sudoku[] loaded;
+	private Parser parser;
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void mySetUp() throws Exception {
+		fixes  = new List[puzzles.size()];
+		loaded = new Sudoku[puzzles.size()];
+		for(int i = 0; i < puzzles.size(); i++) {
+			fixes[i]  = puzzles.getFixes(i);
+			loaded[i] = puzzles.getSudoku(i);
+		}
+		parser = new Parser(cache);
+	}
+
+	@Benchmark
+	public Sudoku fromString() throws DeadEndException {
+		return Sudoku.fromString(cache, puzzles.getText(next()));
+	}
+
+	@Benchmark
+	public Sudoku parseCompact() throws DeadEndException {
+		return parser.parse(puzzles.getLine(next()));
+	}
+
+	@Benchmark
+	public Sudoku fix() throws DeadEndException {
+		Sudoku sudoku = new Sudoku(cache);
+		sudoku.fix(fixes[next()]);
+		return sudoku;
+	}
+
+	@Benchmark
+	public Sudoku heuristic() throws DeadEndException {
+		Sudoku sudoku = loaded[next()];
+		sudoku.heuristic();
+		return sudoku;
+	}
+}
@@ -0,0 +1,413 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+
+public final class Batch {
+
+	/**
+	 * Resolucion en lote de ficheros con muchos sudokus.
+	 *
+	 * El fichero se procesa en una cadena de tres etapas:
+	 *
+	 * - Lector: recorre el fichero mapeado en memoria, byte a byte y
+	 *   sin decodificar a String (Parser.scan), buscando donde empieza
+	 *   y acaba cada sudoku. No copia nada: a cada sudoku le corresponde
+	 *   un trozo [start, end) del ByteBuffer mapeado.
+	 * - Resolutores: un pool de hilos que cargan cada sudoku desde su
+	 *   trozo de buffer y buscan su primera solucion.
+	 * - Escritor: vuelca las soluciones en el mismo orden que en el
+	 *   fichero de entrada, una por linea.
+	 *
+	 * Entre el lector y el escritor hay una cola acotada de resultados
+	 * pendientes (en orden), asi que nunca hay mas de "capacity" sudokus
+	 * en vuelo, por grande que sea el fichero.
+	 *
+	 * Los formatos de entrada admitidos son los de Parser (y se pueden
+	 * mezclar en un fichero): una linea de CELLS caracteres por sudoku,
+	 * o numeros separados en una o varias lineas. Cada CELLS celdas se
+	 * considera un sudoku. Lo que va de '#' a final de linea se ignora.
+	 *
+	 * La salida tiene una linea por sudoku, en el formato compacto de
+	 * CELLS caracteres, o "-" si el sudoku no tiene solucion. En los
+	 * sudokus con valores mayores que 35 (que no caben en una letra),
+	 * la linea lleva los valores separados por espacios.
+	 *
+	 * Los sudokus de lado 6 en adelante se cargan como LongSudoku (ver
+	 * Board), asi que Batch sirve para cualquier lado.
+	 */
+
+	// tamaño de la ventana de fichero que se mapea en memoria de cada vez
+	private static final int WINDOW = 1 << 28;
+	// resultado para los sudokus sin solucion
+	private static final byte[] UNSOLVED = { '-', '\n' };
+
+	// solo uno de los dos es distinto de null (ver newParser)
+	private final Cache cache;
+	private final LongCache longCache;
+	private final int dims;
+	private final int cells;
+	private final int workers;
+	private final int capacity;
+
+	public Batch(final Cache cache, final int workers, final int capacity) {
+		this.cache     = cache;
+		this.longCache = null;
+		this.dims      = cache.DIMS;
+		this.cells     = cache.CELLS;
+		this.workers   = workers;
+		this.capacity  = capacity;
+	}
+
+	public Batch(final int side, final int workers, final int capacity) {
+		/** Lote de sudokus del lado dado, con el tipo de mascara que necesite */
+		this.cache     = (side < LongCache.MIN_SIDE) ? Cache.forSide(side) : null;
+		this.longCache = (cache == null) ? LongCache.forSide(side) : null;
+		this.dims      = side * side;
+		this.cells     = dims * dims;
+		this.workers   = workers;
+		this.capacity  = capacity;
+	}
+
+	private final Parser newParser() {
+		return (cache != null) ? new Parser(cache) : new Parser(longCache);
+	}
+
+	public Report run(final File input, final OutputStream output) throws IOException, InterruptedException {
+		/** Resuelve todos los sudokus del fichero, volcando las soluciones a output */
+		final ExecutorService pool = Executors.newFixedThreadPool(workers);
+		final BlockingQueue<Future<byte[]>> pending = new ArrayBlockingQueue<Future<byte[]>>(capacity);
+		final Writer writer = new Writer(pending, output);
+		final Thread writerThread = new Thread(writer, "sudoku-batch-writer");
+		final long startTime = System.nanoTime();
+		writerThread.start();
+		long count = 0;
+		FileInputStream stream = new FileInputStream(input);
+		try {
+			Reader reader = new Reader(stream.getChannel());
+			while(reader.next()) {
+				pending.put(pool.submit(new Job(reader.window, reader.start, reader.end)));
+				count++;
+			}
+		} finally {
+			stream.close();
+			/* Marca de fin para el escritor: un resultado nulo */
+			FutureTask<byte[]> end = new FutureTask<byte[]>(new Runnable() {
+				public void run() { }
+			}, null);
+			end.run();
+			pending.put(end);
+			writerThread.join();
+			pool.shutdown();
+		}
+		if(writer.error != null) {
+			throw writer.error;
+		}
+		return new Report(count, writer.solved, System.nanoTime() - startTime);
+	}
+
+	private final class Reader {
+
+		/**
+		 * Etapa de lectura: localiza los sudokus dentro del fichero.
+		 *
+		 * El fichero se mapea por ventanas de WINDOW bytes. Si un sudoku
+		 * queda cortado por el final de la ventana, se vuelve a mapear
+		 * la ventana empezando en ese sudoku.
+		 */
+
+		private final FileChannel channel;
+		private final long size;
+		// ventana mapeada, y offset en el fichero de su primer byte
+		ByteBuffer window;
+		private long base;
+		// posicion del siguiente byte a leer dentro de la ventana
+		private int position;
+		// limites del ultimo sudoku encontrado, dentro de window
+		int start;
+		int end;
+		// parser para localizar los sudokus, sin cargarlos
+		private final Parser parser;
+
+		Reader(final FileChannel channel) throws IOException {
+			this.channel  = channel;
+			this.parser   = newParser();
+			this.size     = channel.size();
+			this.base     = 0;
+			this.position = 0;
+			map(0);
+		}
+
+		private final void map(final long offset) throws IOException {
+			/** Mapea la ventana que empieza en el offset dado del fichero */
+			long length = Math.min(WINDOW, size - offset);
+			window   = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			base     = offset;
+			position = 0;
+		}
+
+		private final boolean isLast() {
+			/** true si la ventana actual llega hasta el final del fichero */
+			return base + window.limit() >= size;
+		}
+
+		final boolean next() throws IOException {
+			/** Busca el siguiente sudoku. Devuelve false al final del fichero */
+			while(true) {
+				int found = scan();
+				if(found > 0)
+					return true;
+				if(found == 0 || isLast())
+					return false;
+				/* El sudoku ha quedado cortado: remapeo desde su inicio.
+				 * Si ya empieza al principio de la ventana, no cabe en
+				 * ella, y remapear no avanzaria.
+				 */
+				if(position == 0)
+					throw new IOException(String.format("Sin sudoku completo en %d bytes desde el offset %d", window.limit(), base));
+				map(base + position);
+			}
+		}
+
+		private final int scan() {
+			/**
+			 * Busca el siguiente sudoku dentro de la ventana.
+			 *
+			 * Devuelve 1 si lo encuentra, 0 si no quedan mas sudokus en
+			 * la ventana, o -1 si el sudoku queda cortado por el final de
+			 * la ventana (y hay que remapear).
+			 */
+			final int limit = window.limit();
+			final int found = parser.scan(window, position, limit);
+			if(!isLast() && (found < cells || parser.getEnd() == limit)) {
+				/* Puede que la ultima celda tambien este cortada, por
+				 * eso tambien remapeo si acaba justo en el limite.
+				 */
+				skipLines(limit);
+				return -1;
+			}
+			if(found == 0)
+				return 0;
+			start    = position;
+			end      = parser.getEnd();
+			position = end;
+			return 1;
+		}
+
+		private final void skipLines(final int limit) {
+			/**
+			 * Salta las lineas completas sin celdas (vacias o comentarios)
+			 * que hay antes del sudoku cortado, para que el remapeo avance
+			 * aunque la ventana no tenga ninguna celda.
+			 */
+			int from = position;
+			for(int i = position; i < limit; i++) {
+				if(window.get(i) != '\n')
+					continue;
+				if(parser.scan(window, from, i + 1) != 0)
+					break;
+				from = i + 1;
+			}
+			position = from;
+		}
+	}
+
+	private final class Job implements Callable<byte[]> {
+
+		/** Etapa de resolucion: carga y resuelve un sudoku */
+
+		private final ByteBuffer buffer;
+		private final int start;
+		private final int end;
+
+		Job(final ByteBuffer buffer, final int start, final int end) {
+			this.buffer = buffer;
+			this.start  = start;
+			this.end    = end;
+		}
+
+		@Override
+		public byte[] call() {
+			Board board;
+			try {
+				board = newParser().parseBoard(buffer, start, end);
+			} catch(DeadEndException exc) {
+				return UNSOLVED;
+			} catch(IllegalArgumentException exc) {
+				/* Sudoku mal formado (valores fuera de rango) */
+				return UNSOLVED;
+			}
+			Board solution = board.solve();
+			if(solution == null)
+				return UNSOLVED;
+			return encode(solution);
+		}
+
+		private final byte[] encode(final Board solution) {
+			/** Vuelca la solucion en formato compacto, terminada en '\n' */
+			if(dims > 35) {
+				/* No hay letras para todos los valores: los separo */
+				StringBuilder buffer = new StringBuilder(cells * 3);
+				for(int offset = 0; offset < cells; offset++) {
+					buffer.append(solution.getValue(offset)).append(offset + 1 < cells ? ' ' : '\n');
+				}
+				return buffer.toString().getBytes(StandardCharsets.US_ASCII);
+			}
+			byte[] line = new byte[cells + 1];
+			for(int offset = 0; offset < cells; offset++) {
+				int value = solution.getValue(offset);
+				line[offset] = (byte) ((value < 10) ? ('0' + value) : ('A' + value - 10));
+			}
+			line[cells] = '\n';
+			return line;
+		}
+	}
+
+	private static final class Writer implements Runnable {
+
+		/** Etapa de escritura: vuelca los resultados en orden */
+
+		private final BlockingQueue<Future<byte[]>> pending;
+		private final OutputStream output;
+		long solved;
+		IOException error;
+
+		Writer(final BlockingQueue<Future<byte[]>> pending, final OutputStream output) {
+			this.pending = pending;
+			this.output  = output;
+		}
+
+		@Override
+		public void run() {
+			/* Si hay algun error, sigo vaciando la cola hasta la marca
+			 * de fin, para no dejar bloqueado al lector.
+			 */
+			try {
+				while(true) {
+					byte[] line;
+					try {
+						line = pending.take().get();
+					} catch(ExecutionException exc) {
+						fail(new IOException(exc.getCause()));
+						continue;
+					}
+					if(line == null)
+						break;
+					if(line != UNSOLVED)
+						solved++;
+					if(error == null) {
+						try {
+							output.write(line);
+						} catch(IOException exc) {
+							fail(exc);
+						}
+					}
+				}
+				if(error == null)
+					output.flush();
+			} catch(IOException exc) {
+				fail(exc);
+			} catch(InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private final void fail(final IOException exc) {
+			/** Se queda con el primer error */
+			if(error == null)
+				error = exc;
+		}
+	}
+
+	public static final class Report {
+
+		/** Bean con el resultado de una ejecucion en lote */
+
+		private final long puzzles;
+		private final long solved;
+		private final long nanos;
+
+		Report(final long puzzles, final long solved, final long nanos) {
+			this.puzzles = puzzles;
+			this.solved  = solved;
+			this.nanos   = nanos;
+		}
+
+		public long getPuzzles() {
+			return puzzles;
+		}
+
+		public long getSolved() {
+			return solved;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public double getThroughput() {
+			/** Sudokus procesados por segundo */
+			return (nanos == 0) ? 0 : puzzles * 1e9 / nanos;
+		}
+
+		public String toString() {
+			return String.format("%d sudokus (%d resueltos) en %d ms: %.0f sudokus/s",
+					puzzles, solved, nanos / 1000000, getThroughput());
+		}
+	}
+
+	public static void main(String[] args) {
+		/**
+		 * Resuelve en lote un fichero de sudokus.
+		 *
+		 * Uso: batch <fichero de sudokus> [fichero de salida | -] [hilos] [lado]
+		 *
+		 * Por defecto, la salida es la salida estandar, se usa un hilo
+		 * por procesador, y los sudokus son de lado 3 (9x9). Al final
+		 * se muestra por la salida de error el rendimiento obtenido.
+		 */
+		if (args.length < 1) {
+			System.err
+					.println("Uso: batch <fichero de sudokus> [fichero de salida | -] [hilos] [lado]\n");
+			System.exit(0);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		int side    = 3;
+		if (args.length > 2)
+			threads = Integer.parseInt(args[2]);
+		if (args.length > 3)
+			side = Integer.parseInt(args[3]);
+		Batch batch = new Batch(side, threads, threads * 64);
+		try {
+			OutputStream output = (args.length > 1 && !args[1].equals("-"))
+					? new FileOutputStream(args[1]) : System.out;
+			output = new BufferedOutputStream(output, 1 << 16);
+			try {
+				System.err.println(batch.run(new File(args[0]), output));
+			} finally {
+				output.close();
+			}
+		} catch (IOException exc) {
+			System.err.format("Error procesando el fichero %s: %s\n", args[0], exc.getMessage());
+			System.exit(-1);
+		} catch (InterruptedException exc) {
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,446 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Arrays;
+
+
+public final class Bitboard9 {
+
+	/** Motor de busqueda especializado para sudokus de 9x9 (lado 3).
+	 *
+	 * Casi todos los sudokus que resolvemos son de 9x9, y para ellos el
+	 * modelo generico (Cache, Sudoku, las estrategias) paga divisiones,
+	 * tablas de tablas y llamadas virtuales que aqui no hacen falta.
+	 * Este motor representa el sudoku como nueve tableros de bits, uno
+	 * por valor, con las 81 celdas de cada tablero en dos long: las
+	 * celdas 0 a 63 en el primero, y las 64 a 80 en el segundo. Un bit
+	 * a 1 indica que el valor todavia es posible en esa celda, y un
+	 * tablero mas ("free") marca las celdas que aun no estan fijadas.
+	 * Una celda fijada conserva solo el bit de su valor.
+	 *
+	 * Con esta representacion, todas las operaciones son mascaras
+	 * precalculadas (los vecinos de cada celda y las celdas de cada
+	 * grupo) y operaciones sobre long, sin divisiones ni bucles sobre
+	 * las celdas:
+	 *
+	 * - Fijar un valor quita la celda de los demas tableros, y el
+	 *   valor de los vecinos de la celda en el suyo.
+	 * - Las celdas con una sola opcion (y las que no tienen ninguna)
+	 *   salen de sumar los nueve tableros en paralelo, bit a bit.
+	 * - Un valor con un solo sitio en un grupo ("hidden single") es un
+	 *   bitCount de su tablero con la mascara del grupo.
+	 *
+	 * La busqueda elige la celda libre con menos opciones, y no es
+	 * recursiva: cada nivel tiene su copia del estado (20 long) en un
+	 * unico array reservado de antemano, asi que volver atras no tiene
+	 * que deshacer nada.
+	 *
+	 * El motor usa su propia propagacion, y no el Pipeline del sudoku.
+	 * Sudoku.solve y Sudoku.countSolutions lo eligen automaticamente
+	 * cuando el lado es 3.
+	 */
+
+	// lado de los sudokus que admite este motor
+	public static final int SIDE  = 3;
+	private static final int DIMS  = 9;
+	private static final int CELLS = 81;
+	private static final int UNITS = 27;
+	// long por nivel: dos por cada valor, y dos para las celdas libres
+	private static final int FREE  = 2 * DIMS;
+	private static final int FRAME = FREE + 2;
+	// celdas validas del segundo long (64 a 80)
+	private static final long HIGH = (1L << (CELLS - 64)) - 1;
+
+	// vecinos de cada celda, y celdas de cada grupo, en dos long
+	private static final long[] PEER_LO = new long[CELLS];
+	private static final long[] PEER_HI = new long[CELLS];
+	private static final long[] UNIT_LO = new long[UNITS];
+	private static final long[] UNIT_HI = new long[UNITS];
+
+	static {
+		for(int cell = 0; cell < CELLS; cell++) {
+			final int row = cell / DIMS;
+			final int col = cell % DIMS;
+			final int box = (row / SIDE) * SIDE + col / SIDE;
+			addToUnit(row, cell);
+			addToUnit(DIMS + col, cell);
+			addToUnit(2 * DIMS + box, cell);
+		}
+		for(int cell = 0; cell < CELLS; cell++) {
+			for(int unit = 0; unit < UNITS; unit++) {
+				if(inUnit(unit, cell)) {
+					PEER_LO[cell] |= UNIT_LO[unit];
+					PEER_HI[cell] |= UNIT_HI[unit];
+				}
+			}
+			if(cell < 64)
+				PEER_LO[cell] &= ~(1L << cell);
+			else
+				PEER_HI[cell] &= ~(1L << (cell - 64));
+		}
+	}
+
+	private static void addToUnit(final int unit, final int cell) {
+		if(cell < 64)
+			UNIT_LO[unit] |= 1L << cell;
+		else
+			UNIT_HI[unit] |= 1L << (cell - 64);
+	}
+
+	private static boolean inUnit(final int unit, final int cell) {
+		return (cell < 64) ? (UNIT_LO[unit] & (1L << cell)) != 0 : (UNIT_HI[unit] & (1L << (cell - 64))) != 0;
+	}
+
+	private final Sudoku root;
+	// un FRAME por nivel de la busqueda, el nivel 0 es el sudoku raiz
+	private final long[] state;
+	// pila de decisiones (ver Solutions)
+	private final int[] pivots;
+	private final int[] remaining;
+	// valores (1 a 9) de la primera solucion encontrada
+	private final int[] solution;
+	// tablero de cada valor la ultima vez que se buscaron sus hidden singles
+	private final long[] checked;
+	private long found;
+	private long nodes;
+	private long deadends;
+	// presupuesto de la busqueda (ver Solutions.setBudget)
+	private long maxNodes;
+	private long deadline;
+	private boolean exceeded;
+
+	public Bitboard9(final Sudoku root) {
+		/** Carga las opciones de cada celda del sudoku en los tableros */
+		final Cache cache = root.getCache();
+		if(cache.SIDE != SIDE) {
+			throw new IllegalArgumentException(
+					String.format("Bitboard9 solo admite sudokus de lado %d, no %d", SIDE, cache.SIDE));
+		}
+		this.root      = root;
+		this.state     = new long[FRAME * (CELLS + 1)];
+		this.pivots    = new int[CELLS];
+		this.remaining = new int[CELLS];
+		this.solution  = new int[CELLS];
+		this.checked   = new long[FREE];
+		final int[] cells = root.getCells();
+		for(int cell = 0; cell < CELLS; cell++) {
+			final long bit = 1L << (cell & 63);
+			for(int bits = cells[cell]; bits != 0; bits &= bits - 1) {
+				state[2 * Integer.numberOfTrailingZeros(bits) + (cell >>> 6)] |= bit;
+			}
+		}
+		state[FREE]     = -1L;
+		state[FREE + 1] = HIGH;
+		this.maxNodes   = Long.MAX_VALUE;
+		this.deadline   = 0;
+	}
+
+	public void setBudget(final long maxNodes, final long deadline) {
+		/** Limita la busqueda, igual que Solutions.setBudget */
+		this.maxNodes = maxNodes;
+		this.deadline = deadline;
+	}
+
+	public boolean isBudgetExceeded() {
+		/** true si la ultima busqueda se ha parado por agotar el presupuesto */
+		return exceeded;
+	}
+
+	public long getNodes() {
+		/** Valores de pivote probados en la ultima busqueda */
+		return nodes;
+	}
+
+	public long getDeadends() {
+		/** Ramas sin solucion encontradas en la ultima busqueda */
+		return deadends;
+	}
+
+	public long count(final long limit) {
+		/** Busca soluciones hasta agotar el arbol o llegar a "limit".
+		 *
+		 * Devuelve cuantas ha encontrado, y guarda la primera (ver
+		 * getSolution).
+		 */
+		found    = 0;
+		nodes    = 0;
+		deadends = 0;
+		exceeded = false;
+		if(limit <= 0)
+			return 0;
+		if(!propagate(0)) {
+			deadends += 1;
+			return 0;
+		}
+		if(isSolved(0)) {
+			record(0);
+			return ++found;
+		}
+		int depth = 0;
+		open(depth);
+		while(depth >= 0) {
+			final int digits = remaining[depth];
+			if(digits == 0) {
+				depth--;
+				continue;
+			}
+			if(nodes >= maxNodes || (deadline != 0 && (nodes & (Solutions.BUDGET_CHECK - 1)) == 0
+					&& System.nanoTime() - deadline > 0)) {
+				exceeded = true;
+				break;
+			}
+			remaining[depth] = digits & (digits - 1);
+			final int base = (depth + 1) * FRAME;
+			System.arraycopy(state, depth * FRAME, state, base, FRAME);
+			nodes += 1;
+			if(!place(base, pivots[depth], Integer.numberOfTrailingZeros(digits)) || !propagate(base)) {
+				deadends += 1;
+				continue;
+			}
+			if(isSolved(base)) {
+				if(found == 0)
+					record(base);
+				if(++found >= limit)
+					break;
+				continue;
+			}
+			open(++depth);
+		}
+		return found;
+	}
+
+	public Sudoku getSolution() {
+		/** Primera solucion de la ultima busqueda, o null si no hubo ninguna */
+		if(found == 0)
+			return null;
+		Sudoku result = new Sudoku(root);
+		result.setSolution(solution);
+		return result;
+	}
+
+	public static SolutionCount countSolutions(final Sudoku root, final long limit) {
+		/** Igual que Solutions.countSolutions, con este motor */
+		return countSolutions(root, limit, Long.MAX_VALUE, 0);
+	}
+
+	public static SolutionCount countSolutions(final Sudoku root, final long limit,
+			final long maxNodes, final long deadline) {
+		/** Igual que Solutions.countSolutions con presupuesto, con este motor */
+		Bitboard9 engine = new Bitboard9(root);
+		engine.setBudget(maxNodes, deadline);
+		long found = engine.count(limit);
+		if(Metrics.ENABLED)
+			Metrics.NODES.add(engine.getNodes());
+		return new SolutionCount(found, limit, engine.getNodes(), engine.getDeadends(),
+				engine.isBudgetExceeded());
+	}
+
+	public static boolean hasUniqueSolution(final Sudoku root) {
+		return countSolutions(root, 2).getSolutions() == 1;
+	}
+
+	public static Sudoku solve(final Sudoku root) {
+		/** Primera solucion del sudoku, o null si no tiene */
+		Bitboard9 engine = new Bitboard9(root);
+		engine.count(1);
+		if(Metrics.ENABLED)
+			Metrics.NODES.add(engine.getNodes());
+		return engine.getSolution();
+	}
+
+	private final boolean isSolved(final int base) {
+		return (state[base + FREE] | state[base + FREE + 1]) == 0;
+	}
+
+	private final boolean place(final int base, final int cell, final int digit) {
+		/** Fija el valor en la celda. Devuelve false si no es posible */
+		final long[] s   = state;
+		final int half   = cell >>> 6;
+		final long bit   = 1L << (cell & 63);
+		final int at     = base + 2 * digit;
+		final long pLo   = PEER_LO[cell];
+		final long pHi   = PEER_HI[cell];
+		if((s[at + half] & bit) == 0) {
+			return false;
+		}
+		/* Un vecino ya fijado a este valor */
+		if((s[at] & ~s[base + FREE] & pLo) != 0 || (s[at + 1] & ~s[base + FREE + 1] & pHi) != 0) {
+			return false;
+		}
+		final int slot = base + half;
+		s[slot]      &= ~bit;
+		s[slot + 2]  &= ~bit;
+		s[slot + 4]  &= ~bit;
+		s[slot + 6]  &= ~bit;
+		s[slot + 8]  &= ~bit;
+		s[slot + 10] &= ~bit;
+		s[slot + 12] &= ~bit;
+		s[slot + 14] &= ~bit;
+		s[slot + 16] &= ~bit;
+		s[at + half] |= bit;
+		s[at]        &= ~pLo;
+		s[at + 1]    &= ~pHi;
+		s[base + FREE + half] &= ~bit;
+		return true;
+	}
+
+	private final boolean placeSingle(final int base, final int cell) {
+		/** Fija una celda a su unica opcion, si todavia le queda alguna */
+		final int slot = base + (cell >>> 6);
+		final long bit = 1L << (cell & 63);
+		for(int digit = 0; digit < DIMS; digit++) {
+			if((state[slot + 2 * digit] & bit) != 0)
+				return place(base, cell, digit);
+		}
+		return false;
+	}
+
+	private final boolean propagate(final int base) {
+		/** Fija "naked singles" y "hidden singles" hasta que no quede ninguno.
+		 *
+		 * Devuelve false si encuentra una contradiccion: una celda sin
+		 * opciones, un valor sin sitio en un grupo, o dos vecinos con el
+		 * mismo valor.
+		 */
+		final long[] s = state;
+		/* Ningun tablero se ha revisado todavia: HIGH no tiene los
+		 * bits altos, asi que -1L nunca coincide con el segundo long.
+		 */
+		Arrays.fill(checked, -1L);
+		while(true) {
+			long freeLo = s[base + FREE];
+			long freeHi = s[base + FREE + 1];
+			if((freeLo | freeHi) == 0)
+				return true;
+			/* Suma de los nueve tableros: ones = al menos una opcion,
+			 * twos = al menos dos.
+			 */
+			long onesLo = 0, twosLo = 0, onesHi = 0, twosHi = 0;
+			for(int at = base; at < base + FREE; at += 2) {
+				final long lo = s[at] & freeLo;
+				final long hi = s[at + 1] & freeHi;
+				twosLo |= onesLo & lo;
+				onesLo |= lo;
+				twosHi |= onesHi & hi;
+				onesHi |= hi;
+			}
+			if(((freeLo & ~onesLo) | (freeHi & ~onesHi)) != 0)
+				return false;
+			final long singleLo = onesLo & ~twosLo;
+			final long singleHi = onesHi & ~twosHi;
+			if((singleLo | singleHi) != 0) {
+				for(long bits = singleLo; bits != 0; bits &= bits - 1) {
+					if(!placeSingle(base, Long.numberOfTrailingZeros(bits)))
+						return false;
+				}
+				for(long bits = singleHi; bits != 0; bits &= bits - 1) {
+					if(!placeSingle(base, 64 + Long.numberOfTrailingZeros(bits)))
+						return false;
+				}
+				continue;
+			}
+			boolean placed = false;
+			for(int digit = 0; digit < DIMS; digit++) {
+				final int at = base + 2 * digit;
+				/* Si el tablero del valor no ha cambiado desde la ultima
+				 * vez, tampoco pueden haber aparecido hidden singles.
+				 */
+				if(s[at] == checked[2 * digit] && s[at + 1] == checked[2 * digit + 1])
+					continue;
+				checked[2 * digit]     = s[at];
+				checked[2 * digit + 1] = s[at + 1];
+				for(int unit = 0; unit < UNITS; unit++) {
+					final long lo = s[at] & UNIT_LO[unit];
+					final long hi = s[at + 1] & UNIT_HI[unit];
+					final int count = Long.bitCount(lo) + Long.bitCount(hi);
+					if(count == 0)
+						return false;
+					if(count == 1 && ((lo & freeLo) | (hi & freeHi)) != 0) {
+						final int cell = (lo != 0) ? Long.numberOfTrailingZeros(lo) : 64 + Long.numberOfTrailingZeros(hi);
+						if(!place(base, cell, digit))
+							return false;
+						freeLo = s[base + FREE];
+						freeHi = s[base + FREE + 1];
+						placed = true;
+					}
+				}
+			}
+			if(!placed)
+				return true;
+		}
+	}
+
+	private final void open(final int depth) {
+		/** Elige el pivote del nivel: la celda libre con menos opciones */
+		final long[] s = state;
+		final int base = depth * FRAME;
+		final long freeLo = s[base + FREE];
+		final long freeHi = s[base + FREE + 1];
+		long onesLo = 0, twosLo = 0, threesLo = 0;
+		long onesHi = 0, twosHi = 0, threesHi = 0;
+		for(int at = base; at < base + FREE; at += 2) {
+			final long lo = s[at] & freeLo;
+			final long hi = s[at + 1] & freeHi;
+			threesLo |= twosLo & lo;
+			twosLo   |= onesLo & lo;
+			onesLo   |= lo;
+			threesHi |= twosHi & hi;
+			twosHi   |= onesHi & hi;
+			onesHi   |= hi;
+		}
+		int pivot;
+		final long pairLo = twosLo & ~threesLo;
+		final long pairHi = twosHi & ~threesHi;
+		if(pairLo != 0) {
+			pivot = Long.numberOfTrailingZeros(pairLo);
+		} else if(pairHi != 0) {
+			pivot = 64 + Long.numberOfTrailingZeros(pairHi);
+		} else {
+			pivot = minimum(base, freeLo, freeHi);
+		}
+		final int slot = base + (pivot >>> 6);
+		final long bit = 1L << (pivot & 63);
+		int digits = 0;
+		for(int digit = 0; digit < DIMS; digit++) {
+			if((s[slot + 2 * digit] & bit) != 0)
+				digits |= 1 << digit;
+		}
+		pivots[depth]    = pivot;
+		remaining[depth] = digits;
+	}
+
+	private final int minimum(final int base, final long freeLo, final long freeHi) {
+		/** Celda libre con menos opciones, cuando ninguna tiene solo dos */
+		int best = -1;
+		int len  = DIMS + 1;
+		for(int cell = 0; cell < CELLS; cell++) {
+			final int half = cell >>> 6;
+			final long bit = 1L << (cell & 63);
+			if(((half == 0 ? freeLo : freeHi) & bit) == 0)
+				continue;
+			int current = 0;
+			for(int at = base + half; at < base + FREE; at += 2) {
+				if((state[at] & bit) != 0)
+					current++;
+			}
+			if(current < len) {
+				best = cell;
+				len  = current;
+			}
+		}
+		return best;
+	}
+
+	private final void record(final int base) {
+		/** Guarda los valores del nivel resuelto en "solution" */
+		for(int cell = 0; cell < CELLS; cell++) {
+			final int slot = base + (cell >>> 6);
+			final long bit = 1L << (cell & 63);
+			for(int digit = 0; digit < DIMS; digit++) {
+				if((state[slot + 2 * digit] & bit) != 0) {
+					solution[cell] = digit + 1;
+					break;
+				}
+			}
+		}
+	}
+}
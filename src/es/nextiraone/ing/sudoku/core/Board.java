@@ -0,0 +1,42 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Iterator;
+
+
+public interface Board {
+
+	/**
+	 * Lo comun a Sudoku (mascaras int, hasta lado 5) y LongSudoku
+	 * (mascaras long, lados 6 a 8).
+	 *
+	 * Es lo que necesitan Parser y Batch para trabajar con sudokus de
+	 * cualquier lado. Los motores de busqueda y las heuristicas siguen
+	 * trabajando directamente con cada clase, sin pasar por aqui.
+	 */
+
+	/** Numero de celdas a cada lado de un cuadro */
+	int getSide();
+
+	/** Valor de la celda, o 0 si todavia no esta fijada */
+	int getValue(int offset);
+
+	/** Fija una celda a un valor (de 1 a DIMS), y propaga cambios */
+	void fix(int offset, int value) throws DeadEndException;
+
+	/** Aplica la heuristica */
+	void heuristic() throws DeadEndException;
+
+	/** Iterador sobre las soluciones, en orden aleatorio */
+	Iterator<? extends Board> solutions();
+
+	/** Devuelve la primera solucion (sin randomizar), o null si no hay */
+	Board solve();
+
+	static Board create(final int side) {
+		/** Crea un sudoku vacio del lado dado, con el tipo de mascara que necesite */
+		if(side < LongCache.MIN_SIDE) {
+			return new Sudoku(Cache.forSide(side));
+		}
+		return new LongSudoku(LongCache.forSide(side));
+	}
+}
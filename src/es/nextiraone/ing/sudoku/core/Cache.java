@@ -1,5 +1,7 @@
 package es.nextiraone.ing.sudoku.core;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
 
 public final class Cache {
 
@@ -48,8 +50,17 @@ public final class Cache {
 	 * Pero para aislar al resto de clases de la necesidad de conocer estos
 	 * detalles, y para facilitar y acelerar el procesamiento, las funciones
 	 * relativas a offsets, bits y mascaras se encapsulan todas en esta clase.
+	 *
+	 * Un Cache no cambia despues de construirlo, asi que se puede compartir
+	 * entre todos los sudokus del mismo lado, en cualquier hilo. forSide()
+	 * devuelve siempre la misma instancia para cada lado, y solo construye
+	 * las tablas la primera vez que se pide.
 	 */
 
+	// instancias compartidas, por lado (ver forSide)
+	private static final AtomicReferenceArray<Cache> REGISTRY =
+			new AtomicReferenceArray<Cache>(LongCache.MIN_SIDE);
+
 	// lado de cada cuadro del sudoku
 	public final int SIDE;
 	// lado del sudoku
@@ -63,23 +74,60 @@ public final class Cache {
 	public final int FULLCELL;
 	// mascara vacia (sin opciones)
 	public final int EMPTYMASK;
+	// numero de grupos: filas, columnas y cuadros (ver getUnit)
+	public final int UNITS;
+	// numero de vecinos de cada celda (ver getPeers)
+	public final int PEERS;
 
 	private final int[][] ROW;
 	private final int[][] COL;
 	private final int[][] SQUARE;
-	private final OffsetGroup[][] NEIGHBOR;
+	private final int[][] UNIT;
+	// vecinos de cada celda, PEERS por celda (ver getPeers)
+	private final int[] PEER;
+	private final int[] CELL_UNIT;
+	private final int[] CELL_INDEX;
 
 	public Cache(int side) {
-		SIDE      = side;
-		DIMS      = SIDE * SIDE;
-		CELLS     = DIMS * DIMS;
-		VALS      = 1 << DIMS;
-		FULLCELL  = VALS - 1;
-		EMPTYMASK = 0;
-		ROW       = buildRow();
-		COL       = buildCol();
-		SQUARE    = buildSquare();
-		NEIGHBOR  = buildNeighbor();
+		if(side < 1 || side >= LongCache.MIN_SIDE) {
+			/* Con mas de 31 valores la mascara no cabe en un int */
+			throw new IllegalArgumentException(
+					String.format("Lado de sudoku no soportado: %d (usa LongCache)", side));
+		}
+		SIDE       = side;
+		DIMS       = SIDE * SIDE;
+		CELLS      = DIMS * DIMS;
+		VALS       = 1 << DIMS;
+		FULLCELL   = VALS - 1;
+		EMPTYMASK  = 0;
+		UNITS      = 3 * DIMS;
+		PEERS      = 3 * DIMS - 2 * SIDE - 1;
+		ROW        = buildRow();
+		COL        = buildCol();
+		SQUARE     = buildSquare();
+		UNIT       = buildUnit();
+		CELL_UNIT  = buildCellUnit();
+		CELL_INDEX = buildCellIndex();
+		PEER       = buildPeer();
+	}
+
+	public static Cache forSide(final int side) {
+		/** Devuelve el Cache compartido para el lado dado.
+		 *
+		 * Si dos hilos lo piden a la vez la primera vez, puede que los
+		 * dos lo construyan, pero solo uno se queda en el registro y
+		 * los dos devuelven ese.
+		 */
+		if(side < 1 || side >= LongCache.MIN_SIDE) {
+			throw new IllegalArgumentException(
+					String.format("Lado de sudoku no soportado: %d (usa LongCache)", side));
+		}
+		Cache cache = REGISTRY.get(side);
+		if(cache == null) {
+			REGISTRY.compareAndSet(side, null, new Cache(side));
+			cache = REGISTRY.get(side);
+		}
+		return cache;
 	}
 
 	public final int[] translate(final int coord1, final int coord2) {
@@ -138,22 +186,100 @@ public final class Cache {
 		return out;
 	}
 
-	private final OffsetGroup[][] buildNeighbor() {
-		OffsetGroup[][] out = new OffsetGroup[CELLS][3];
+	private final int[] buildPeer() {
+		/** Precalcula los vecinos de cada celda.
+		 *
+		 * Los vecinos de una celda son las celdas de su cuadro (sin la
+		 * propia celda), y las de su fila y su columna que no estan en
+		 * el cuadro: DIMS - 1 + 2 * (DIMS - SIDE) = PEERS celdas, todas
+		 * distintas (20 en un 9x9). Se guardan seguidas en un solo
+		 * array, PEERS por celda, para que la propagacion las recorra
+		 * en un bucle simple sobre enteros.
+		 */
+		int[] out = new int[CELLS * PEERS];
 		for(int square = 0; square < DIMS; square++) {
 			for(int index = 0; index < DIMS; index++) {
 				int offset  = SQUARE[square][index];
 				int rowSkip = (square % SIDE) * SIDE;
 				int colSkip = (square / SIDE) * SIDE;
 				int[] xlate = translate(square, index);
-				out[offset][0] = new OffsetGroup(this, SQUARE[square], index, index + 1);
-				out[offset][1] = new OffsetGroup(this, ROW[xlate[0]], rowSkip, rowSkip + SIDE);
-				out[offset][2] = new OffsetGroup(this, COL[xlate[1]], colSkip, colSkip + SIDE);
+				int at      = offset * PEERS;
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos != index)
+						out[at++] = SQUARE[square][pos];
+				}
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos < rowSkip || pos >= rowSkip + SIDE)
+						out[at++] = ROW[xlate[0]][pos];
+				}
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos < colSkip || pos >= colSkip + SIDE)
+						out[at++] = COL[xlate[1]][pos];
+				}
 			}
 		}
 		return out;
 	}
 
+	private final int[][] buildUnit() {
+		/** Junta filas, columnas y cuadros en una sola tabla de grupos */
+		int[][] out = new int[UNITS][];
+		for(int index = 0; index < DIMS; index++) {
+			out[index]            = ROW[index];
+			out[DIMS + index]     = COL[index];
+			out[2 * DIMS + index] = SQUARE[index];
+		}
+		return out;
+	}
+
+	private final int[] buildCellUnit() {
+		/** Precalcula los grupos (fila, columna, cuadro) de cada celda */
+		int[] out = new int[CELLS * 3];
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				int offset = getOffset(row, col);
+				out[offset * 3]     = row;
+				out[offset * 3 + 1] = DIMS + col;
+				out[offset * 3 + 2] = 2 * DIMS + translate(row, col)[0];
+			}
+		}
+		return out;
+	}
+
+	private final int[] buildCellIndex() {
+		/** Precalcula la posicion de cada celda dentro de sus grupos */
+		int[] out = new int[CELLS * 3];
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				int offset = getOffset(row, col);
+				out[offset * 3]     = col;
+				out[offset * 3 + 1] = row;
+				out[offset * 3 + 2] = translate(row, col)[1];
+			}
+		}
+		return out;
+	}
+
+	protected final int[] getUnit(final int unit) {
+		/** Devuelve las coordenadas de las celdas del grupo dado.
+		 *
+		 * Los grupos se numeran de 0 a UNITS - 1: primero las filas
+		 * (0 a DIMS - 1), luego las columnas (DIMS a 2 * DIMS - 1) y por
+		 * ultimo los cuadros (2 * DIMS a 3 * DIMS - 1).
+		 */
+		return UNIT[unit];
+	}
+
+	protected final int getCellUnit(final int offset, final int group) {
+		/** Devuelve el grupo de la celda: fila (group = 0), columna (1) o cuadro (2) */
+		return CELL_UNIT[offset * 3 + group];
+	}
+
+	protected final int getCellIndex(final int offset, final int group) {
+		/** Devuelve la posicion de la celda dentro de su grupo (ver getCellUnit) */
+		return CELL_INDEX[offset * 3 + group];
+	}
+
 	protected final int[] getRow(final int row) {
 		/** Devuelve las coordenadas de las celdas en la fila dada */
 		return ROW[row];
@@ -220,6 +346,25 @@ public final class Cache {
 		return mask & (~(1 << index));
 	}
 
+	protected final int getFirstOption(final int mask) {
+		/** Devuelve el indice del primer bit encendido de la mascara.
+		 *
+		 * Junto con getMaskWithoutFirst, permite recorrer una mascara
+		 * sin reservar memoria:
+		 *
+		 *   for(int bits = mask; bits != EMPTYMASK; bits = getMaskWithoutFirst(bits)) {
+		 *       int index = getFirstOption(bits);
+		 *       ...
+		 *   }
+		 */
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	protected final int getMaskWithoutFirst(final int mask) {
+		/** Quita de la mascara el primer bit encendido */
+		return mask & (mask - 1);
+	}
+
 	protected final int getCellWithout(final int cell, final int options) {
 		/** Elimina los bits indicados por options de la celda */
 		return cell & ~options;
@@ -240,12 +385,16 @@ public final class Cache {
 		return Integer.bitCount(cell);
 	}
 	
-	protected final OffsetGroup[] getNeighbor(final int offset) {
-		/** Devuelve las coordenadas de las celdas vecinas a la dada */
-		return NEIGHBOR[offset];
+	public final int[] getPeers() {
+		/** Vecinos de todas las celdas: los de "offset" son las PEERS
+		 * entradas a partir de offset * PEERS (ver buildPeer).
+		 *
+		 * Devuelve el array interno, asi que no se debe modificar.
+		 */
+		return PEER;
 	}
 
-	protected final OptionIterator getOption(final int cell) {
+	public final OptionIterator getOption(final int cell) {
 		/**
 		 * Devuelve los identificadores de los diferentes valores que
 		 * puede tomar la celda.
@@ -260,7 +409,7 @@ public final class Cache {
 		return new OptionIterator(this, cell);
 	}
 
-	protected final OptionIterator getOption(final int cell, final int offset) {
+	public final OptionIterator getOption(final int cell, final int offset) {
 		/**
 		 * Devuelve los identificadores de los diferentes valores que
 		 * puede tomar la celda.
@@ -275,6 +424,27 @@ public final class Cache {
 		return new OptionIterator(this, cell, offset);
 	}
 
+	public final void forEachOption(final int cell, final IntConsumer consumer) {
+		/**
+		 * Invoca al consumer con el identificador de cada uno de los
+		 * valores que puede tomar la celda, empezando a contar desde 0
+		 * (igual que getOption(cell)), pero sin reservar memoria.
+		 */
+		for(int bits = cell; bits != EMPTYMASK; bits = getMaskWithoutFirst(bits)) {
+			consumer.accept(getFirstOption(bits));
+		}
+	}
+
+	public final void forEachOption(final int cell, final int offset, final IntConsumer consumer) {
+		/**
+		 * Igual que forEachOption(cell, consumer), pero los indices
+		 * empiezan a contar desde "offset" (igual que getOption(cell, offset)).
+		 */
+		for(int bits = cell; bits != EMPTYMASK; bits = getMaskWithoutFirst(bits)) {
+			consumer.accept(getFirstOption(bits) + offset);
+		}
+	}
+
 	protected final int getValue(final int cell) {
 		/** Devuelve el valor que corresponde a la celda.
 		 * 
@@ -0,0 +1,380 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Arrays;
+
+
+public final class CombinedSubsets extends Strategy {
+
+	/**
+	 * Logica combinatoria original de Sudoku.heuristic().
+	 *
+	 * Busca, dentro de las celdas libres de un grupo, subconjuntos de
+	 * "n" celdas que entre todas no puedan tomar mas de "n" valores, y
+	 * quita esos valores del resto de celdas del grupo. No limita el
+	 * tamaño del subconjunto, asi que cubre las parejas, trios, etc.
+	 * de NakedSubsets, pero es bastante mas cara.
+	 *
+	 * En grupos grandes (sudokus de 16x16 o 25x25) el numero de
+	 * subconjuntos puede ser enorme, asi que:
+	 *
+	 * - Cada subconjunto (mascara de posiciones) se examina una sola
+	 *   vez por llamada, aunque se llegue a el por varios caminos.
+	 * - Se puede limitar el tamaño de los subconjuntos (limit). Con
+	 *   limite, la busqueda empieza por los subconjuntos de "limit"
+	 *   celdas en lugar de por el grupo entero.
+	 * - getExamined() cuenta los subconjuntos examinados en el hilo
+	 *   actual, para poder medir lo que cuesta la estrategia. La cuenta
+	 *   va en el Workspace del hilo, y no en la instancia: las
+	 *   estrategias de Pipeline.DEFAULT las comparten todos los hilos, y
+	 *   un contador compartido seria una escritura en memoria comun en
+	 *   cada aplicacion. Para la cuenta global, ver Metrics.SUBSETS.
+	 */
+
+	// coste de la estrategia (ver Strategy.getCost)
+	public static final int COST = 10;
+	// sin limite de tamaño de los subconjuntos
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	// espacio de trabajo de la busqueda, uno por hilo
+	private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	private final int limit;
+
+	public CombinedSubsets() {
+		/** Estrategia sin limite de tamaño, como la logica original */
+		this(UNBOUNDED);
+	}
+
+	public CombinedSubsets(final int limit) {
+		/** Estrategia que no examina subconjuntos de mas de "limit" celdas */
+		this.limit = limit;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public static long getExamined() {
+		/** Numero de subconjuntos examinados hasta ahora en este hilo, por cualquier instancia */
+		return WORKSPACE.get().total;
+	}
+
+	public static void resetExamined() {
+		WORKSPACE.get().total = 0;
+	}
+
+	static int getLastSize() {
+		/** Tamaño del ultimo subconjunto que ha tenido efecto en este hilo (ver Grader) */
+		return WORKSPACE.get().found;
+	}
+
+	@Override
+	public int getCost() {
+		return COST;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final int[] coords = sudoku.getCache().getUnit(unit);
+		final Workspace work = WORKSPACE.get();
+		work.start();
+		try {
+			return combineLogic(sudoku, work, coords, sudoku.getUnfixed(coords));
+		} finally {
+			work.total += work.examined;
+			if(Metrics.ENABLED)
+				Metrics.SUBSETS.add(work.examined);
+		}
+	}
+
+	private final boolean checkCombination(final Sudoku sudoku, final Workspace work, int[] coords, int used, int check) throws DeadEndException {
+		/** Realiza una comprobacion estadistica sobre las celdas indicadas por "check".
+		 * 
+		 * Cuando en un sudoku hay un grupo de "n" celdas relacionadas
+		 * (de la misma fila, columna o cuadro) que en combinacion no pueden
+		 * tomar mas de "n" valores, eso implica que esos valores no pueden
+		 * estar en ninguna otra celda de la misma relacion (fila, columna
+		 * o cuadro).
+		 * 
+		 * Por ejemplo, si tienes dos celdas en una fila con los posibles valores
+		 * "2" y "5", no puedes saber en cual celda esta el "2" y en cual esta
+		 * el "5". Lo que si que sabes es que ni el "2" ni el "5" puden estar en 
+		 * ninguna otra celda de la misma fila, porque el sudoku no tendria solucion. 
+		 * 
+		 * Esta funcion lo que hace es valerse de eso. Comprueba los valores que
+		 * tienen las celdas identificadas por "check" (es una mascara que indica
+		 * que valores de "coords" estamos usando). Si entre todas combinadas no
+		 * pueden tomar mas de Cache.getLength(check) valores, entonces hemos
+		 * dado con una combinacion valida.
+		 * 
+		 * Si la combinacion es valida, aprovecha y elimina esos valores del resto
+		 * de celdas del grupo. Los indices de las celdas que no esten fijas en el
+		 * grupo deben indicarse mediante la mascara "used".
+		 * 
+		 * - offsets es una lista de coordenadas, de longitud <= this.getSize().
+		 * - used es una bitmask, indicando las posiciones dentro del array de
+		 *   offsets que contienen celdas no fijadas aun.
+		 * - check es una bitmask, indicando las posiciones dentro del array de
+		 *   offsets que estamos procesando en esta iteracion.
+		 *
+		 * Devuelve "true" solo si ha encontrado una combinacion valida que ademas
+		 * haya tenido impacto en el sudoku (haya eliminado algun valor del
+		 * resto de celdas del grupo). 
+		 */
+		final Cache cache = sudoku.getCache();
+		final int[] cells  = sudoku.getCells();
+		work.examined++;
+		int comb = cache.EMPTYMASK;
+		for(int bits = check; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			comb = cache.getCellCombined(comb, cells[coords[cache.getFirstOption(bits)]]);
+		}
+		if(cache.getLength(comb) <= cache.getLength(check)) {
+			if(!sudoku.drop(coords, cache.getCellWithout(used,  check), comb))
+				return false;
+			work.found = cache.getLength(check);
+			return true;
+		}
+		return false;
+	}
+
+	private final boolean combineLogic(final Sudoku sudoku, final Workspace work, int[] coords, int used) throws DeadEndException {
+		/**
+		 * Fija valores por combinacion.
+		 * 
+		 * Comprueba las combinaciones de celdas interesantes dentro
+		 * del grupo (fila, columna o cuadro) dados, utilizando la
+		 * funcion checkCombination.
+		 * 
+		 * - offsets es una lista de coordenadas, de longitud <= this.getSize().
+		 * - used es una bitmask, indicando las posiciones dentro del array de
+		 *   offsets que contienen celdas no fijadas aun.
+		 * - check es una bitmask, indicando las posiciones dentro del array de
+		 *   offsets que estamos procesando en esta iteracion.
+		 */
+		/* Al igual que drop, esta funcion ha pasado de ser
+		 * recursiva a iterativa.
+		 *
+		 * La lista de combinaciones pendientes (checkList) es la cola
+		 * del Workspace, y una combinacion solo entra en la cola la
+		 * primera vez que se examina (Workspace.visit).
+		 */
+		final Cache cache = sudoku.getCache();
+		final int[] cells  = sudoku.getCells();
+		if(cache.getLength(used) <= 2)
+			return false;
+		if(cache.getLength(used) <= limit) {
+			work.visit(used);
+			work.offer(used);
+		} else {
+			/* Con limite, empiezo por los subconjuntos de "limit" celdas,
+			 * descartando las celdas que tengan mas de "limit" valores
+			 * (no pueden formar parte de ninguno que sirva).
+			 */
+			int candidates = cache.EMPTYMASK;
+			for(int bits = used; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+				int index = cache.getFirstOption(bits);
+				if(cache.getLength(cells[coords[index]]) <= limit)
+					candidates = cache.getCellCombined(candidates, cache.getMask(index));
+			}
+			if(cache.getLength(candidates) < 2)
+				return false;
+			int size = Math.min(limit, cache.getLength(candidates));
+			if(seed(sudoku, work, coords, used, candidates, cache.EMPTYMASK, size))
+				return true;
+		}
+		while(!work.isEmpty()) {
+			int check = work.poll();
+			/* La combinacion dada por "check" siempre se procesa antes
+			 * de meterla en el checkList (excepto en el caso inicial,
+			 * ya que check == used y no tiene sentido probar nada porque
+			 * no hay celdas (used - check) en las que quitar valores).
+			 * 
+			 * Asi que lo que nos queda es procesar los sub-grupos de "check".
+			 * Sea "n" = Cache.getLength(check): Me interesan en principio
+			 * los grupos de "n"-1 celdas (o menos) donde cada celda no tenga
+			 * mas de "n"-1 valores. El resto de celdas no me interesan,
+			 * las puedo eliminar.
+			 * 
+			 * Pero claro, el tema es que si quito, por ejemplo, dos celdas,
+			 * ya no me interesan tampoco las celdas que pueden tomar n-1
+			 * valores; solo me interesarian las que pueden tomar un maximo
+			 * de n-2, asi que tendria que filtrar otra vez...
+			 * 
+			 * Lo que hago abajo es iterativamente ir reduciendo el
+			 * conjunto de celdas interesantes. Empiezo por las que tienen
+			 * mas de "n"-1 valores, pero si he conseguido reducir alguna,
+			 * entonces vuelvo a intentarlo con la nueva longitud del grupo,
+			 * a ver si me quito alguna otra.
+			 */
+			int oldcheck = check;
+			int newlen = cache.getLength(check) - 1;
+			int oldlen = 0;
+			do {
+				for(int bits = check; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+					int index = cache.getFirstOption(bits);
+					// Si la celda tiene mas de <newlen> opciones:
+					if (cache.getLength(cells[coords[index]]) > newlen) {
+						// entonces, la saco de la lista.
+						check = cache.getMaskWithout(check, index);
+					}
+				}
+				// y actualizo newlen
+				oldlen = newlen;
+				newlen = cache.getLength(check);
+			}
+			while (oldlen != newlen && newlen > 1);
+			if (oldcheck != check) {
+				/* Si he reducido la lista de opciones, la tengo que procesar
+				 * para ver si la nueva lista reducida da algun resultado
+				 * positivo. Si ya la habia visto, sus sub-grupos tambien
+				 * estan vistos o en la lista.
+				 */
+				if(!work.visit(check))
+					continue;
+				if(checkCombination(sudoku, work, coords, used, check))
+					return true;
+			}
+			/* Si llego aqui, es porque "check" no nos ha dado una
+			 * combinacion valida o que tenga efecto sobre el sudoku, pero
+			 * al menos la hemos limpiado y dejado solo celdas que
+			 * puedan formar subgrupos interesantes.
+			 * 
+			 * Asi que vamos a ir agregando esos subgrupos posiblemente
+			 * interesantes a la lista de procesamiento.
+			 */
+			if(newlen > 2) {
+				for(int bits = check; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+					/* Pre-proceso el sugbrupo antes de meterlo en en la lista */
+					int newcheck = cache.getMaskWithout(check, cache.getFirstOption(bits));
+					if(!work.visit(newcheck))
+						continue;
+					if(checkCombination(sudoku, work, coords, used, newcheck))
+						return true;
+					/* Y si no hay exito, lo enlisto para que se siga buscando */
+					work.offer(newcheck);
+				}
+			}
+		}
+		return false;
+	}
+
+	private final boolean seed(final Sudoku sudoku, final Workspace work, final int[] coords, final int used,
+			final int candidates, final int chosen, final int left) throws DeadEndException {
+		/** Examina y encola todos los subconjuntos de "left" celdas mas de candidates */
+		final Cache cache = sudoku.getCache();
+		if(left == 0) {
+			if(!work.visit(chosen))
+				return false;
+			if(chosen != used && checkCombination(sudoku, work, coords, used, chosen))
+				return true;
+			work.offer(chosen);
+			return false;
+		}
+		for(int bits = candidates; cache.getLength(bits) >= left; bits = cache.getMaskWithoutFirst(bits)) {
+			int index = cache.getFirstOption(bits);
+			if(seed(sudoku, work, coords, used, cache.getMaskWithoutFirst(bits),
+					cache.getCellCombined(chosen, cache.getMask(index)), left - 1))
+				return true;
+		}
+		return false;
+	}
+
+	private static final class Workspace {
+
+		/**
+		 * Estado de una busqueda: la cola de combinaciones pendientes y
+		 * el conjunto de combinaciones ya vistas.
+		 *
+		 * El conjunto es una tabla hash de direccionamiento abierto sobre
+		 * arrays de int, sin boxing. Para vaciarla entre llamadas no se
+		 * recorre: cada entrada lleva el numero de la llamada en la que
+		 * se metio (stamp), y las de llamadas anteriores cuentan como
+		 * huecos libres.
+		 */
+
+		private int[] keys   = new int[256];
+		private int[] stamps = new int[256];
+		private int stamp;
+		private int size;
+		private int[] queue  = new int[64];
+		private int head;
+		private int tail;
+		// subconjuntos examinados en la llamada actual, y en total
+		long examined;
+		long total;
+		// tamaño del ultimo subconjunto que ha tenido efecto
+		int found;
+
+		final void start() {
+			/** Vacia la cola y el conjunto para una nueva llamada */
+			if(++stamp == 0) {
+				Arrays.fill(stamps, 0);
+				stamp = 1;
+			}
+			size     = 0;
+			head     = 0;
+			tail     = 0;
+			examined = 0;
+		}
+
+		final boolean visit(final int mask) {
+			/** Mete la mascara en el conjunto. Devuelve false si ya estaba */
+			if(2 * (size + 1) > keys.length)
+				grow();
+			int slot = find(keys, stamps, stamp, mask);
+			if(stamps[slot] == stamp)
+				return false;
+			keys[slot]   = mask;
+			stamps[slot] = stamp;
+			size++;
+			return true;
+		}
+
+		final void offer(final int mask) {
+			if(tail == queue.length)
+				queue = Arrays.copyOf(queue, 2 * queue.length);
+			queue[tail++] = mask;
+		}
+
+		final boolean isEmpty() {
+			return head == tail;
+		}
+
+		final int poll() {
+			return queue[head++];
+		}
+
+		private final void grow() {
+			/** Duplica la tabla, recolocando las entradas de esta llamada */
+			int[] newKeys   = new int[2 * keys.length];
+			int[] newStamps = new int[2 * keys.length];
+			for(int slot = 0; slot < keys.length; slot++) {
+				if(stamps[slot] == stamp) {
+					int target = find(newKeys, newStamps, stamp, keys[slot]);
+					newKeys[target]   = keys[slot];
+					newStamps[target] = stamp;
+				}
+			}
+			keys   = newKeys;
+			stamps = newStamps;
+		}
+
+		private static final int find(final int[] keys, final int[] stamps, final int stamp, final int mask) {
+			/** Posicion de la mascara en la tabla, o del hueco donde iria */
+			final int last = keys.length - 1;
+			int slot = (mask * 0x9E3779B9) >>> 7 & last;
+			while(stamps[slot] == stamp && keys[slot] != mask)
+				slot = (slot + 1) & last;
+			return slot;
+		}
+	}
+
+	public String toString() {
+		return (limit == UNBOUNDED) ? "CombinedSubsets" : "CombinedSubsets(" + limit + ")";
+	}
+}
@@ -0,0 +1,322 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+public class DancingLinks implements Iterator<Sudoku> {
+
+	/** Iterador sobre las soluciones de un Sudoku, con el algoritmo X
+	 * de Knuth sobre "dancing links" (DLX).
+	 *
+	 * Es un motor alternativo a Solutions: el sudoku se traduce a un
+	 * problema de cobertura exacta, con cuatro familias de columnas
+	 * (restricciones) que se tienen que cumplir exactamente una vez:
+	 *
+	 * - Cada celda tiene un valor               (CELLS columnas)
+	 * - Cada fila tiene cada valor              (DIMS * DIMS)
+	 * - Cada columna tiene cada valor           (DIMS * DIMS)
+	 * - Cada cuadro tiene cada valor            (DIMS * DIMS)
+	 *
+	 * y una fila de la matriz por cada candidato (celda, valor) que
+	 * todavia permiten las mascaras del sudoku raiz, con un nodo en
+	 * cada una de sus cuatro columnas.
+	 *
+	 * La matriz no usa objetos: cada nodo es un indice en los arrays
+	 * left, right, up, down y column, el nodo 0 es la cabecera de la
+	 * lista de columnas, y las columnas son los nodos 1 a 4 * CELLS.
+	 * Igual que en Solutions, la busqueda no es recursiva, y la pila de
+	 * decisiones (el nodo elegido en cada nivel) esta en un array de
+	 * enteros reservado de antemano.
+	 *
+	 * Las celdas que ya estan fijadas en el sudoku raiz se eligen al
+	 * construir el iterador, asi que la busqueda solo ve las libres.
+	 * No randomiza: las soluciones salen siempre en el mismo orden. Es
+	 * lo que interesa para contarlas o comprobar la unicidad, que es
+	 * donde este motor suele ganar a Solutions.
+	 */
+
+	private final Sudoku root;
+	private final Cache cache;
+	// enlaces de la matriz, un elemento por nodo
+	private final int[] left;
+	private final int[] right;
+	private final int[] up;
+	private final int[] down;
+	private final int[] column;
+	// candidato (offset * DIMS + valor - 1) de cada nodo de fila
+	private final int[] candidate;
+	// numero de nodos de cada columna
+	private final int[] size;
+	// pila de decisiones: el nodo elegido en cada nivel
+	private final int[] stack;
+	private int depth;
+	// true si la pila contiene una solucion que aun no se ha devuelto
+	private boolean ready;
+	private boolean started;
+	private boolean done;
+	private int deadends;
+	private long nodes;
+
+	public DancingLinks(final Sudoku root) {
+		/** Construye la matriz de cobertura a partir de las mascaras del sudoku */
+		this.root  = root;
+		this.cache = root.getCache();
+		final int[] cells = root.getCells();
+		final int columns = 4 * cache.CELLS;
+		int rows = 0;
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			rows += cache.getLength(cells[offset]);
+		}
+		final int total = 1 + columns + 4 * rows;
+		this.left      = new int[total];
+		this.right     = new int[total];
+		this.up        = new int[total];
+		this.down      = new int[total];
+		this.column    = new int[total];
+		this.candidate = new int[total];
+		this.size      = new int[1 + columns];
+		this.stack     = new int[cache.CELLS];
+		build(cells, columns);
+		this.done = !selectGivens(cells);
+	}
+
+	private final void build(final int[] cells, final int columns) {
+		/** Enlaza la cabecera, las columnas y una fila por candidato */
+		for(int col = 0; col <= columns; col++) {
+			left[col]   = (col == 0) ? columns : col - 1;
+			right[col]  = (col == columns) ? 0 : col + 1;
+			up[col]     = col;
+			down[col]   = col;
+			column[col] = col;
+		}
+		int next = columns + 1;
+		final int dims = cache.DIMS;
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			final int row    = cache.getCellUnit(offset, 0);
+			final int col    = cache.getCellUnit(offset, 1) - dims;
+			final int square = cache.getCellUnit(offset, 2) - 2 * dims;
+			for(int bits = cells[offset]; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+				final int value = cache.getFirstOption(bits);
+				final int first = next;
+				next = link(next, first, 1 + offset, offset * dims + value);
+				next = link(next, first, 1 + cache.CELLS + row * dims + value, offset * dims + value);
+				next = link(next, first, 1 + 2 * cache.CELLS + col * dims + value, offset * dims + value);
+				next = link(next, first, 1 + 3 * cache.CELLS + square * dims + value, offset * dims + value);
+			}
+		}
+	}
+
+	private final int link(final int node, final int first, final int col, final int option) {
+		/** Agrega un nodo al final de la columna y de la fila que empieza en first */
+		column[node]    = col;
+		candidate[node] = option;
+		up[node]        = up[col];
+		down[node]      = col;
+		down[up[col]]   = node;
+		up[col]         = node;
+		size[col]      += 1;
+		left[node]      = (node == first) ? node : left[first];
+		right[node]     = first;
+		right[left[node]] = node;
+		left[first]     = node;
+		return node + 1;
+	}
+
+	private final boolean selectGivens(final int[] cells) {
+		/** Elige las filas de las celdas que ya estan fijadas.
+		 *
+		 * Devuelve false si dos de ellas chocan (el sudoku raiz no
+		 * tiene solucion).
+		 */
+		for(int col = 1; col <= cache.CELLS; col++) {
+			if(cache.getLength(cells[col - 1]) != 1 || isCovered(col))
+				continue;
+			if(size[col] == 0)
+				return false;
+			final int node = down[col];
+			for(int j = node; ; ) {
+				if(isCovered(column[j]))
+					return false;
+				j = right[j];
+				if(j == node)
+					break;
+			}
+			cover(col);
+			for(int j = right[node]; j != node; j = right[j]) {
+				cover(column[j]);
+			}
+		}
+		return true;
+	}
+
+	private final boolean isCovered(final int col) {
+		/** Una columna cubierta ya no esta enlazada en la lista de cabeceras */
+		return right[left[col]] != col;
+	}
+
+	private final void cover(final int col) {
+		/** Quita la columna, y todas las filas que la usan del resto de columnas */
+		right[left[col]] = right[col];
+		left[right[col]] = left[col];
+		for(int i = down[col]; i != col; i = down[i]) {
+			for(int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				size[column[j]] -= 1;
+			}
+		}
+	}
+
+	private final void uncover(final int col) {
+		/** Deshace cover(col), en orden inverso */
+		for(int i = up[col]; i != col; i = up[i]) {
+			for(int j = left[i]; j != i; j = left[j]) {
+				size[column[j]] += 1;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		}
+		right[left[col]] = col;
+		left[right[col]] = col;
+	}
+
+	private final int choose() {
+		/** Columna con menos filas (MRV), o 0 si no queda ninguna */
+		int best = 0;
+		int len  = Integer.MAX_VALUE;
+		for(int col = right[0]; col != 0; col = right[col]) {
+			if(size[col] < len) {
+				best = col;
+				len  = size[col];
+				if(len <= 1)
+					break;
+			}
+		}
+		return best;
+	}
+
+	private final boolean open() {
+		/** Abre un nuevo nivel, cubriendo la columna con menos filas.
+		 *
+		 * Devuelve true si no quedan columnas, es decir, si la pila
+		 * es una solucion.
+		 */
+		final int col = choose();
+		if(col == 0) {
+			return true;
+		}
+		cover(col);
+		stack[depth++] = col;
+		return false;
+	}
+
+	private final boolean search() {
+		/** Avanza la busqueda hasta la siguiente solucion (ver Solutions.search).
+		 *
+		 * En cada nivel, stack guarda la fila que se esta probando, o
+		 * la cabecera de la columna si todavia no se ha probado
+		 * ninguna. Al volver a un nivel se deshace su fila y se pasa a
+		 * la siguiente de la columna; cuando se acaban, se descubre la
+		 * columna y se vuelve al nivel anterior.
+		 */
+		if(!started) {
+			started = true;
+			if(open())
+				return true;
+		}
+		while(depth > 0) {
+			final int level = depth - 1;
+			int node = stack[level];
+			if(node != column[node]) {
+				for(int j = left[node]; j != node; j = left[j]) {
+					uncover(column[j]);
+				}
+			}
+			node = down[node];
+			final int col = column[node];
+			if(node == col) {
+				/* No hay mas filas en esta columna */
+				if(size[col] == 0 && stack[level] == col)
+					deadends += 1;
+				uncover(col);
+				depth--;
+				continue;
+			}
+			stack[level] = node;
+			nodes += 1;
+			for(int j = right[node]; j != node; j = right[j]) {
+				cover(column[j]);
+			}
+			if(open())
+				return true;
+		}
+		return false;
+	}
+
+	public int getDeadends() {
+		/** Cuenta de columnas que se han quedado sin filas */
+		return deadends;
+	}
+
+	public long getNodes() {
+		/** Cuenta de filas (candidatos) probadas */
+		return nodes;
+	}
+
+	public static SolutionCount countSolutions(final Sudoku root, final long limit) {
+		/** Cuenta las soluciones de un sudoku, hasta un maximo de "limit" (ver Solutions.countSolutions) */
+		DancingLinks solutions = new DancingLinks(root);
+		long found = 0;
+		while(found < limit && solutions.advance()) {
+			found++;
+		}
+		return new SolutionCount(found, limit, solutions.getNodes(), solutions.getDeadends());
+	}
+
+	public static boolean hasUniqueSolution(final Sudoku root) {
+		/** Comprueba si el sudoku tiene una y solo una solucion */
+		return countSolutions(root, 2).getSolutions() == 1;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(!ready && !done) {
+			ready = search();
+			done  = !ready;
+		}
+		return ready;
+	}
+
+	final boolean advance() {
+		/** Avanza hasta la siguiente solucion sin construir el Sudoku */
+		ready = false;
+		return hasNext();
+	}
+
+	@Override
+	public Sudoku next() {
+		/** Construye la solucion fijando en una copia del raiz las filas de la pila */
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ready = false;
+		Sudoku solution = new Sudoku(root);
+		try {
+			for(int level = 0; level < depth; level++) {
+				final int option = candidate[stack[level]];
+				solution.fix(option / cache.DIMS, option % cache.DIMS + 1);
+			}
+		}
+		catch(DeadEndException exc) {
+			/* Las filas de la pila no pueden chocar entre si */
+			throw new IllegalStateException(exc);
+		}
+		return solution;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
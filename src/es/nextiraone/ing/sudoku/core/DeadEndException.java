@@ -2,10 +2,26 @@ package es.nextiraone.ing.sudoku.core;
 
 public class DeadEndException extends Exception {
     
-    /** Se lanza cuando se comprueba que un sudoku no tiene solucion */
+    /** Se lanza cuando se comprueba que un sudoku no tiene solucion.
+     *
+     * Dentro del motor (propagacion, estrategias y busqueda) los caminos
+     * sin salida son muy frecuentes: decenas de miles por sudoku dificil.
+     * Asi que ahi no se crea una excepcion cada vez, sino que se lanza
+     * siempre la misma (signal), sin traza de pila ni supresiones, y la
+     * busqueda la recoge en Sudoku.tryFix sin que salga de la clase.
+     *
+     * Los metodos publicos que pueden encontrar un camino sin salida
+     * (Sudoku.fix, Sudoku.heuristic, Pipeline.apply, Strategy.apply...)
+     * la cambian por una nueva en la
+     * frontera (ver boundary), de manera que fuera del motor cada
+     * excepcion es un objeto distinto, con su traza.
+     */
 
 	static final long serialVersionUID = 1;
 
+	// excepcion compartida del motor: sin mensaje, sin traza, inmutable
+	private static final DeadEndException STACKLESS = new DeadEndException(false);
+
 	public DeadEndException() {
 	}
 
@@ -20,4 +36,20 @@ public class DeadEndException extends Exception {
 	public DeadEndException(String message, Throwable cause) {
 		super(message, cause);
 	}
+
+	private DeadEndException(final boolean writable) {
+		super(null, null, writable, writable);
+	}
+
+	static DeadEndException signal() {
+		/** Excepcion a lanzar dentro del motor, contandola en Metrics.DEADENDS */
+		if(Metrics.ENABLED)
+			Metrics.DEADENDS.increment();
+		return STACKLESS;
+	}
+
+	static DeadEndException boundary(final DeadEndException exc) {
+		/** Excepcion a relanzar desde un metodo publico: nunca la compartida */
+		return (exc == STACKLESS) ? new DeadEndException() : exc;
+	}
 }
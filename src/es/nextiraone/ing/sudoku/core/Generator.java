@@ -0,0 +1,453 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+public final class Generator {
+
+	/**
+	 * Generador de sudokus con solucion unica.
+	 *
+	 * Cada sudoku se genera en dos pasos:
+	 *
+	 * - Se rellena un tablero completo al azar: la primera solucion de
+	 *   un sudoku vacio, buscada con Solutions con pivotes y valores
+	 *   aleatorios.
+	 * - Se van quitando pistas, en orden aleatorio, mientras el sudoku
+	 *   siga teniendo solucion unica y no supere la dificultad pedida.
+	 *   Se para al llegar al numero de pistas objetivo, o cuando ya no
+	 *   se puede quitar ninguna (el sudoku es minimo).
+	 *
+	 * La comprobacion de unicidad es lo que mas cuesta, y se hace de
+	 * forma incremental: partimos de un sudoku con solucion unica, y al
+	 * quitar la pista (celda, valor) la unica solucion nueva posible
+	 * tendria otro valor en esa celda. Asi que basta con quitar el valor
+	 * de la celda y comprobar que no queda ninguna solucion, que es una
+	 * busqueda mucho mas podada que contar hasta dos soluciones. Con un
+	 * techo de dificultad, ademas, el pipeline del techo tiene que
+	 * resolver el sudoku, pero solo se prueba si la busqueda ha dicho
+	 * que la solucion es unica: es mas barata, y descarta enseguida la
+	 * mayoria de las pistas que no se pueden quitar.
+	 *
+	 * El tablero completo se rellena con un pipeline vacio (solo la
+	 * propagacion de singles de Sudoku.fix): en un sudoku casi vacio
+	 * las estrategias no encuentran nada y solo hacen perder tiempo.
+	 *
+	 * La dificultad se mide por las estrategias que hacen falta para
+	 * resolver el sudoku sin buscar (ver Difficulty). Si un tablero no
+	 * llega al suelo de dificultad pedido, se prueba con otro, hasta
+	 * MAX_ATTEMPTS veces.
+	 *
+	 * Se puede limitar lo que cuesta next() con setBudget: las busquedas
+	 * de fill y de unicidad comparten un presupuesto de nodos y un
+	 * instante limite, y al agotarlos next() devuelve null. Lo que no
+	 * se corta es la fase de logica del techo de dificultad (solvedBy),
+	 * que no busca y siempre termina.
+	 *
+	 * Un Generator no es thread-safe. Para generar en paralelo se usa
+	 * generate(count, pool), que crea un Generator por tarea, cada uno
+	 * con un split() del generador aleatorio original: con una semilla
+	 * fija (ver SearchConfig), el resultado es siempre el mismo.
+	 */
+
+	public enum Difficulty {
+
+		/**
+		 * Dificultad de un sudoku, segun el pipeline mas sencillo que
+		 * lo resuelve sin buscar:
+		 *
+		 * - EASY: lo resuelve Pipeline.BASIC (singles e intersecciones).
+		 * - MEDIUM: necesita subconjuntos (Pipeline.FULL), pero no buscar.
+		 * - HARD: Pipeline.FULL no basta, hay que buscar.
+		 */
+
+		EASY(Pipeline.BASIC, null),
+		MEDIUM(Pipeline.FULL, Pipeline.BASIC),
+		HARD(null, Pipeline.FULL);
+
+		// pipeline que tiene que resolver el sudoku, o null si no hay techo
+		private final Pipeline ceiling;
+		// pipeline que no debe resolverlo, o null si no hay suelo
+		private final Pipeline floor;
+
+		private Difficulty(final Pipeline ceiling, final Pipeline floor) {
+			this.ceiling = ceiling;
+			this.floor   = floor;
+		}
+	}
+
+	// tableros que se prueban antes de renunciar a llegar a la dificultad
+	public static final int MAX_ATTEMPTS = 100;
+	// pipeline con el que se rellena el tablero completo
+	private static final Pipeline FILL = new Pipeline();
+
+	private final Cache cache;
+	private final int clues;
+	private final Difficulty difficulty;
+	private final SearchConfig config;
+	private final SplittableRandom random;
+	// orden en que se intentan quitar las pistas
+	private final int[] order;
+	// celda de la que se quita el valor en la comprobacion de unicidad
+	private final int[] single;
+	// presupuesto de next() (ver setBudget), y lo gastado
+	private long maxNodes;
+	private long deadline;
+	private long nodes;
+	private boolean exceeded;
+
+	public Generator(final Cache cache, final int clues, final Difficulty difficulty) {
+		/** Generador aleatorio, sin semilla */
+		this(cache, clues, difficulty, SearchConfig.RANDOM);
+	}
+
+	public Generator(final Cache cache, final int clues, final Difficulty difficulty, final SearchConfig config) {
+		/** Generador con la aleatoriedad dada (ver SearchConfig).
+		 *
+		 * clues es el numero de pistas objetivo: se dejan de quitar al
+		 * llegar a el, aunque se pudiera seguir. Con 0, se quitan todas
+		 * las que se pueda.
+		 */
+		this(cache, clues, difficulty, config, config.newRandom());
+	}
+
+	Generator(final Cache cache, final int clues, final Difficulty difficulty, final SearchConfig config, final SplittableRandom random) {
+		this.cache      = cache;
+		this.clues      = clues;
+		this.difficulty = difficulty;
+		this.config     = config;
+		this.random     = random;
+		this.order      = new int[cache.CELLS];
+		this.single     = new int[1];
+		this.maxNodes   = Long.MAX_VALUE;
+		this.deadline   = 0;
+	}
+
+	public void setBudget(final long maxNodes, final long deadline) {
+		/** Limita cada llamada a next() a "maxNodes" nodos y hasta el instante "deadline".
+		 *
+		 * Como en Solutions.setBudget, deadline se compara con
+		 * System.nanoTime(), y 0 es sin limite de tiempo.
+		 */
+		this.maxNodes = maxNodes;
+		this.deadline = deadline;
+	}
+
+	public long getNodes() {
+		/** Nodos de busqueda gastados en la ultima llamada a next() */
+		return nodes;
+	}
+
+	public boolean isBudgetExceeded() {
+		/** true si la ultima llamada a next() se ha parado por agotar el presupuesto */
+		return exceeded;
+	}
+
+	public Puzzle next() {
+		/** Genera un sudoku, o devuelve null si no llega a la dificultad en
+		 * MAX_ATTEMPTS tableros, o si se agota el presupuesto (ver setBudget).
+		 */
+		nodes    = 0;
+		exceeded = false;
+		for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			final int[] solution = fill();
+			if(exceeded)
+				return null;
+			final int[] givens   = carve(solution);
+			if(exceeded)
+				return null;
+			if(difficulty.floor == null || !solvedBy(givens, difficulty.floor)) {
+				return new Puzzle(cache, givens, solution, difficulty);
+			}
+		}
+		return null;
+	}
+
+	private final int[] fill() {
+		/** Rellena un tablero completo al azar */
+		Sudoku empty = new Sudoku(cache);
+		empty.setPipeline(FILL);
+		Solutions solutions = new Solutions(empty, config, (random != null) ? random.split() : null);
+		solutions.setBudget(maxNodes - nodes, deadline);
+		final boolean filled = solutions.advance();
+		nodes += solutions.getNodes();
+		if(solutions.isBudgetExceeded()) {
+			exceeded = true;
+			return null;
+		}
+		if(!filled) {
+			/* Un sudoku vacio siempre tiene solucion */
+			throw new IllegalStateException("Sudoku vacio sin solucion");
+		}
+		final Sudoku full    = solutions.current();
+		final int[] solution = new int[cache.CELLS];
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			solution[offset] = full.getValue(offset);
+		}
+		return solution;
+	}
+
+	private final int[] carve(final int[] solution) {
+		/** Quita pistas del tablero mientras siga siendo valido */
+		final int[] givens = solution.clone();
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			order[offset] = offset;
+		}
+		if(random != null) {
+			/* Fisher-Yates */
+			for(int i = cache.CELLS - 1; i > 0; i--) {
+				int j    = random.nextInt(i + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+		}
+		int count = cache.CELLS;
+		for(int i = 0; i < cache.CELLS && count > clues && !exceeded; i++) {
+			final int offset = order[i];
+			final int value  = givens[offset];
+			givens[offset]   = 0;
+			if(canRemove(givens, offset, value)) {
+				count--;
+			} else {
+				givens[offset] = value;
+			}
+		}
+		return givens;
+	}
+
+	private final boolean canRemove(final int[] givens, final int offset, final int value) {
+		/** Comprueba si el sudoku sigue siendo valido sin la pista (offset, value).
+		 *
+		 * givens ya no tiene la pista, y sin ella tiene que seguir
+		 * teniendo solucion unica y no pasarse del techo de dificultad.
+		 */
+		if(!isUnique(givens, offset, value) || exceeded) {
+			return false;
+		}
+		return difficulty.ceiling == null || solvedBy(givens, difficulty.ceiling);
+	}
+
+	private final boolean isUnique(final int[] givens, final int offset, final int value) {
+		/** Comprueba que ninguna solucion tiene en offset un valor distinto de value */
+		Sudoku sudoku = load(givens);
+		try {
+			single[0] = offset;
+			sudoku.drop(single, cache.getMask(0), cache.getMask(value - 1));
+		}
+		catch(DeadEndException exc) {
+			/* Ningun otro valor cabe en la celda */
+			return true;
+		}
+		/* Como Sudoku.countSolutions, con el motor de 9x9 si se puede,
+		 * pero con el presupuesto que quede.
+		 */
+		final long left = maxNodes - nodes;
+		long found;
+		if(cache.SIDE == Bitboard9.SIDE) {
+			Bitboard9 engine = new Bitboard9(sudoku);
+			engine.setBudget(left, deadline);
+			found     = engine.count(1);
+			nodes    += engine.getNodes();
+			exceeded  = engine.isBudgetExceeded();
+			if(Metrics.ENABLED)
+				Metrics.NODES.add(engine.getNodes());
+		} else {
+			Solutions solutions = new Solutions(sudoku, false);
+			solutions.setBudget(left, deadline);
+			found     = solutions.advance() ? 1 : 0;
+			nodes    += solutions.getNodes();
+			exceeded  = solutions.isBudgetExceeded();
+		}
+		return found == 0 && !exceeded;
+	}
+
+	private final boolean solvedBy(final int[] givens, final Pipeline pipeline) {
+		/** Comprueba si el pipeline resuelve el sudoku sin buscar */
+		Sudoku sudoku = load(givens);
+		sudoku.setPipeline(pipeline);
+		try {
+			sudoku.heuristic();
+		}
+		catch(DeadEndException exc) {
+			/* Las pistas son parte de una solucion, no puede pasar */
+			throw new IllegalStateException(exc);
+		}
+		for(int cell: sudoku.getCells()) {
+			if(cache.getLength(cell) > 1)
+				return false;
+		}
+		return true;
+	}
+
+	private final Sudoku load(final int[] givens) {
+		/** Sudoku con las pistas dadas, ya propagadas */
+		Sudoku sudoku = new Sudoku(cache);
+		try {
+			for(int offset = 0; offset < cache.CELLS; offset++) {
+				if(givens[offset] != 0)
+					sudoku.fix(offset, givens[offset]);
+			}
+		}
+		catch(DeadEndException exc) {
+			throw new IllegalStateException(exc);
+		}
+		return sudoku;
+	}
+
+	public List<Puzzle> generate(final int count, final ForkJoinPool pool) {
+		/** Genera count sudokus en paralelo sobre el pool.
+		 *
+		 * Los sudokus que no llegan a la dificultad pedida (ver next)
+		 * no se incluyen, asi que la lista puede tener menos de count.
+		 */
+		final Puzzle[] puzzles = new Puzzle[count];
+		final SplittableRandom[] streams = new SplittableRandom[count];
+		for(int i = 0; i < count; i++) {
+			streams[i] = (random != null) ? random.split() : null;
+		}
+		pool.invoke(new Task(puzzles, streams, 0, count));
+		List<Puzzle> result = new ArrayList<Puzzle>(count);
+		for(Puzzle puzzle: puzzles) {
+			if(puzzle != null)
+				result.add(puzzle);
+		}
+		return result;
+	}
+
+	private final class Task extends RecursiveAction {
+
+		/** Genera los sudokus [from, to), partiendo el rango por la mitad */
+
+		static final long serialVersionUID = 1;
+
+		private final Puzzle[] puzzles;
+		private final SplittableRandom[] streams;
+		private final int from;
+		private final int to;
+
+		Task(final Puzzle[] puzzles, final SplittableRandom[] streams, final int from, final int to) {
+			this.puzzles = puzzles;
+			this.streams = streams;
+			this.from    = from;
+			this.to      = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > 1) {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new Task(puzzles, streams, from, middle),
+						new Task(puzzles, streams, middle, to));
+				return;
+			}
+			if(to > from) {
+				puzzles[from] = new Generator(cache, clues, difficulty, config, streams[from]).next();
+			}
+		}
+	}
+
+	public static final class Puzzle {
+
+		/** Bean con un sudoku generado y su solucion */
+
+		private final Cache cache;
+		private final int[] givens;
+		private final int[] solution;
+		private final Difficulty difficulty;
+		private final int clues;
+
+		Puzzle(final Cache cache, final int[] givens, final int[] solution, final Difficulty difficulty) {
+			this.cache      = cache;
+			this.givens     = givens;
+			this.solution   = solution;
+			this.difficulty = difficulty;
+			int count = 0;
+			for(int value: givens) {
+				if(value != 0)
+					count++;
+			}
+			this.clues      = count;
+		}
+
+		public int getGiven(final int offset) {
+			/** Pista de la celda, o 0 si esta vacia */
+			return givens[offset];
+		}
+
+		public int getSolution(final int offset) {
+			/** Valor de la celda en la (unica) solucion */
+			return solution[offset];
+		}
+
+		public int getClues() {
+			return clues;
+		}
+
+		public Difficulty getDifficulty() {
+			return difficulty;
+		}
+
+		public Sudoku toSudoku() {
+			/** Carga las pistas en un nuevo Sudoku */
+			try {
+				return Sudoku.fromString(cache, toString());
+			}
+			catch(DeadEndException exc) {
+				throw new IllegalStateException(exc);
+			}
+		}
+
+		public String toString() {
+			/** Vuelca las pistas en el formato de Parser: compacto, o numeros si no caben en una letra */
+			StringBuilder buffer = new StringBuilder(cache.CELLS * 3);
+			for(int offset = 0; offset < cache.CELLS; offset++) {
+				int value = givens[offset];
+				if(cache.DIMS > 35) {
+					buffer.append(value).append(offset + 1 < cache.CELLS ? " " : "");
+				} else {
+					buffer.append((value == 0) ? '.' : (char) ((value < 10) ? ('0' + value) : ('A' + value - 10)));
+				}
+			}
+			return buffer.toString();
+		}
+	}
+
+	public static void main(String[] args) {
+		/**
+		 * Genera sudokus en paralelo.
+		 *
+		 * Uso: generator <numero de sudokus> [pistas] [EASY|MEDIUM|HARD] [hilos] [semilla]
+		 *
+		 * Vuelca los sudokus por la salida estandar, uno por linea, y al
+		 * final muestra por la salida de error el rendimiento obtenido,
+		 * total y por hilo.
+		 */
+		if (args.length < 1) {
+			System.err
+					.println("Uso: generator <numero de sudokus> [pistas] [EASY|MEDIUM|HARD] [hilos] [semilla]\n");
+			System.exit(0);
+		}
+		int count       = Integer.parseInt(args[0]);
+		int clues       = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+		Difficulty diff = (args.length > 2) ? Difficulty.valueOf(args[2]) : Difficulty.HARD;
+		int threads     = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		SearchConfig config = (args.length > 4) ? SearchConfig.seeded(Long.parseLong(args[4])) : SearchConfig.RANDOM;
+		Generator generator = new Generator(Cache.forSide(3), clues, diff, config);
+		ForkJoinPool pool   = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		List<Puzzle> puzzles = generator.generate(count, pool);
+		long nanos = System.nanoTime() - start;
+		pool.shutdown();
+		for(Puzzle puzzle: puzzles) {
+			System.out.println(puzzle);
+		}
+		double rate = (nanos == 0) ? 0 : puzzles.size() * 1e9 / nanos;
+		System.err.format("%d sudokus en %d ms: %.1f sudokus/s, %.1f sudokus/s por hilo\n",
+				puzzles.size(), nanos / 1000000, rate, rate / threads);
+	}
+}
@@ -0,0 +1,328 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+public final class Grader {
+
+	/**
+	 * Calificador de dificultad de sudokus.
+	 *
+	 * Resuelve el sudoku en dos fases, y apunta lo que hace en cada una:
+	 *
+	 * - Logica: aplica el pipeline (por defecto Pipeline.FULL) al sudoku
+	 *   con las pistas, y cuenta cuantas veces ha tenido efecto cada
+	 *   estrategia (el histograma de tecnicas), el tamaño de los
+	 *   subconjuntos encontrados, y el numero de rondas (aplicaciones de
+	 *   una estrategia que han cambiado algo).
+	 * - Busqueda: si la logica no basta, cuenta las soluciones (hasta 2)
+	 *   con Solutions, y apunta los nodos, los caminos sin salida y la
+	 *   profundidad maxima del arbol.
+	 *
+	 * Con todo eso calcula una puntuacion (ver Grade.getScore).
+	 *
+	 * Los contadores no estan en las estrategias ni en el pipeline: el
+	 * Grader envuelve cada estrategia en un Counted que cuenta sus
+	 * aplicaciones, y monta con ellas su propio pipeline. Los sudokus
+	 * que no se califican usan los pipelines de siempre, sin envolver,
+	 * asi que los contadores no les cuestan nada.
+	 *
+	 * Un Grader no es thread-safe (los contadores son suyos), pero se
+	 * puede reutilizar para calificar millones de sudokus: cada grade()
+	 * pone los contadores a cero y solo reserva el Grade resultante. Para
+	 * calificar en paralelo, un Grader por hilo.
+	 */
+
+	// peso de cada nodo de la busqueda en la puntuacion
+	public static final int NODE_COST = 2 * CombinedSubsets.COST;
+
+	private final Strategy[] strategies;
+	private final Counted[] counted;
+	private final Pipeline pipeline;
+	// histograma de tamaños de subconjunto (indice = tamaño)
+	private final long[] sizes;
+
+	public Grader() {
+		/** Calificador con todas las estrategias (Pipeline.FULL) */
+		this(Pipeline.FULL);
+	}
+
+	public Grader(final Pipeline base) {
+		/** Calificador con las estrategias del pipeline dado */
+		this.strategies = base.getStrategies();
+		this.counted    = new Counted[strategies.length];
+		this.sizes      = new long[Long.SIZE];
+		for(int index = 0; index < strategies.length; index++) {
+			counted[index] = new Counted(strategies[index]);
+		}
+		this.pipeline   = new Pipeline(counted);
+	}
+
+	public Grade grade(final Sudoku puzzle) {
+		/** Califica el sudoku, sin modificarlo.
+		 *
+		 * El sudoku debe tener solo las pistas fijadas (con fix o con
+		 * Parser.load), sin la heuristica aplicada: Parser.parse y
+		 * Sudoku.fromString ya la aplican, y la fase de logica no
+		 * tendria nada que contar. Los singles que se encadenan al
+		 * fijar las pistas (Sudoku.fix) tampoco cuentan como rondas.
+		 */
+		for(Counted strategy: counted) {
+			strategy.fired = 0;
+		}
+		Arrays.fill(sizes, 0);
+		Sudoku work = new Sudoku(puzzle);
+		work.setPipeline(pipeline);
+		try {
+			pipeline.propagate(work);
+		}
+		catch(DeadEndException exc) {
+			return new Grade(this, 0, 0, 0, 0, false);
+		}
+		final long[] fired = new long[counted.length];
+		for(int index = 0; index < counted.length; index++) {
+			fired[index] = counted[index].fired;
+		}
+		final boolean logic = isSolved(work);
+		if(logic) {
+			return new Grade(this, fired, 1, 0, 0, 0, true);
+		}
+		/* En la busqueda no interesan las tecnicas, solo el arbol */
+		work.setPipeline(puzzle.getPipeline());
+		Solutions solutions = new Solutions(work, SearchConfig.ORDERED);
+		long found = 0;
+		while(found < 2 && solutions.advance()) {
+			found++;
+		}
+		return new Grade(this, fired, found, solutions.getNodes(), solutions.getDeadends(), solutions.getMaxDepth(), false);
+	}
+
+	private static final boolean isSolved(final Sudoku sudoku) {
+		final Cache cache = sudoku.getCache();
+		for(int cell: sudoku.getCells()) {
+			if(cache.getLength(cell) > 1)
+				return false;
+		}
+		return true;
+	}
+
+	private final class Counted extends Strategy {
+
+		/** Estrategia que cuenta sus aplicaciones con efecto */
+
+		private final Strategy inner;
+		// tamaño fijo de subconjunto, -1 si es variable (CombinedSubsets), 0 si no aplica
+		private final int size;
+		long fired;
+
+		Counted(final Strategy inner) {
+			this.inner = inner;
+			if(inner instanceof NakedSubsets) {
+				this.size = ((NakedSubsets) inner).getSize();
+			} else if(inner instanceof HiddenSubsets) {
+				this.size = ((HiddenSubsets) inner).getSize();
+			} else if(inner instanceof CombinedSubsets) {
+				this.size = -1;
+			} else {
+				this.size = 0;
+			}
+		}
+
+		@Override
+		public int getCost() {
+			return inner.getCost();
+		}
+
+		@Override
+		boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+			if(!inner.propagate(sudoku, unit))
+				return false;
+			fired++;
+			if(size != 0) {
+				sizes[(size > 0) ? size : CombinedSubsets.getLastSize()]++;
+			}
+			return true;
+		}
+
+		public String toString() {
+			return inner.toString();
+		}
+	}
+
+	public static final class Grade {
+
+		/** Bean con la calificacion de un sudoku */
+
+		private final Strategy[] strategies;
+		private final long[] fired;
+		private final long[] sizes;
+		private final long solutions;
+		private final long nodes;
+		private final long deadends;
+		private final int depth;
+		private final boolean logic;
+
+		Grade(final Grader grader, final long solutions, final long nodes, final long deadends, final int depth, final boolean logic) {
+			this(grader, new long[grader.strategies.length], solutions, nodes, deadends, depth, logic);
+		}
+
+		Grade(final Grader grader, final long[] fired, final long solutions, final long nodes, final long deadends, final int depth, final boolean logic) {
+			int last = grader.sizes.length;
+			while(last > 0 && grader.sizes[last - 1] == 0)
+				last--;
+			this.strategies = grader.strategies;
+			this.fired      = fired;
+			this.sizes      = Arrays.copyOf(grader.sizes, last);
+			this.solutions  = solutions;
+			this.nodes      = nodes;
+			this.deadends   = deadends;
+			this.depth      = depth;
+			this.logic      = logic;
+		}
+
+		public int getStrategies() {
+			/** Numero de estrategias del histograma */
+			return strategies.length;
+		}
+
+		public Strategy getStrategy(final int index) {
+			/** Estrategia de la posicion dada, en orden de coste */
+			return strategies[index];
+		}
+
+		public long getFired(final int index) {
+			/** Veces que la estrategia ha tenido efecto en la fase de logica */
+			return fired[index];
+		}
+
+		public long getSubsets(final int size) {
+			/** Subconjuntos de ese tamaño que han tenido efecto */
+			return (size < sizes.length) ? sizes[size] : 0;
+		}
+
+		public int getMaxSubset() {
+			/** Tamaño del mayor subconjunto que ha hecho falta, o 0 */
+			return Math.max(0, sizes.length - 1);
+		}
+
+		public long getRounds() {
+			/** Rondas de la fase de logica: aplicaciones de estrategias con efecto */
+			long rounds = 0;
+			for(long count: fired) {
+				rounds += count;
+			}
+			return rounds;
+		}
+
+		public long getSolutions() {
+			/** Soluciones encontradas: 0, 1, o 2 si hay mas de una */
+			return solutions;
+		}
+
+		public boolean isSolvedByLogic() {
+			/** true si la fase de logica ha resuelto el sudoku sin buscar */
+			return logic;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getDeadends() {
+			return deadends;
+		}
+
+		public int getDepth() {
+			/** Profundidad maxima del arbol de busqueda */
+			return depth;
+		}
+
+		public long getScore() {
+			/** Puntuacion de dificultad.
+			 *
+			 * Cada aplicacion con efecto de una estrategia suma su coste
+			 * (Strategy.getCost), y cada nodo de la busqueda suma
+			 * NODE_COST, que es mas que la estrategia mas cara: adivinar
+			 * siempre es mas dificil que deducir.
+			 */
+			long score = nodes * NODE_COST;
+			for(int index = 0; index < strategies.length; index++) {
+				score += fired[index] * strategies[index].getCost();
+			}
+			return score;
+		}
+
+		public String toString() {
+			StringBuilder buffer = new StringBuilder();
+			buffer.append(String.format("score=%d rounds=%d", getScore(), getRounds()));
+			for(int index = 0; index < strategies.length; index++) {
+				if(fired[index] != 0)
+					buffer.append(' ').append(strategies[index]).append('=').append(fired[index]);
+			}
+			if(sizes.length > 0) {
+				buffer.append(" subsets=").append(Arrays.toString(sizes));
+			}
+			if(!logic) {
+				buffer.append(String.format(" solutions=%d nodes=%d deadends=%d depth=%d",
+						solutions, nodes, deadends, depth));
+			}
+			return buffer.toString();
+		}
+	}
+
+	public static void main(String[] args) {
+		/**
+		 * Califica un fichero de sudokus, uno por linea (ver Parser).
+		 *
+		 * Uso: grader <fichero de sudokus> [lado]
+		 *
+		 * Vuelca una linea por sudoku con su calificacion, "-" si las
+		 * pistas ya chocan entre si, o "error: ..." si la linea no se
+		 * puede leer, y al final el rendimiento obtenido por la salida
+		 * de error.
+		 */
+		if (args.length < 1) {
+			System.err.println("Uso: grader <fichero de sudokus> [lado]\n");
+			System.exit(0);
+		}
+		int side      = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		Parser parser = new Parser(Cache.forSide(side));
+		Grader grader = new Grader();
+		long count    = 0;
+		long start    = System.nanoTime();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(args[0]));
+			try {
+				for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if(line.trim().isEmpty() || line.startsWith("#"))
+						continue;
+					count++;
+					Sudoku puzzle = new Sudoku(Cache.forSide(side));
+					try {
+						parser.load(puzzle, line, 0, line.length());
+					} catch (DeadEndException exc) {
+						/* Las pistas ya chocan entre si */
+						System.out.println("-");
+						continue;
+					} catch (IllegalArgumentException exc) {
+						/* Valor fuera de rango (ver Parser) */
+						System.out.println("error: " + exc.getMessage());
+						continue;
+					}
+					System.out.println(grader.grade(puzzle));
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException exc) {
+			System.err.format("Error leyendo el fichero %s: %s\n", args[0], exc.getMessage());
+			System.exit(-1);
+		}
+		long nanos = System.nanoTime() - start;
+		System.err.format("%d sudokus en %d ms: %.0f sudokus/s\n",
+				count, nanos / 1000000, (nanos == 0) ? 0 : count * 1e9 / nanos);
+	}
+}
@@ -0,0 +1,66 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public final class HiddenSingles extends Strategy {
+
+	/**
+	 * Valores con una sola celda posible ("hidden singles").
+	 *
+	 * Si un valor solo puede ir en una celda del grupo, esa celda
+	 * tiene que tomar ese valor, aunque todavia tenga otras opciones.
+	 * Y si un valor no puede ir en ninguna celda, el sudoku no tiene
+	 * solucion.
+	 */
+
+	// coste de la estrategia (ver Strategy.getCost)
+	public static final int COST = 2;
+
+	@Override
+	public int getCost() {
+		return COST;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final Cache cache  = sudoku.getCache();
+		final int[] coords = cache.getUnit(unit);
+		final int[] cells  = sudoku.getCells();
+		/* Valores que aparecen en alguna celda (once), en mas de una
+		 * (twice), y en celdas ya fijadas (fixed).
+		 */
+		int once  = cache.EMPTYMASK;
+		int twice = cache.EMPTYMASK;
+		int fixed = cache.EMPTYMASK;
+		for(int idx = 0; idx < coords.length; idx++) {
+			int cell = cells[coords[idx]];
+			twice = cache.getCellCombined(twice, once & cell);
+			once  = cache.getCellCombined(once, cell);
+			if(cache.getLength(cell) == 1)
+				fixed = cache.getCellCombined(fixed, cell);
+		}
+		if(once != cache.FULLCELL) {
+			/* Hay algun valor que no cabe en ninguna celda */
+			throw DeadEndException.signal();
+		}
+		int singles = cache.getCellWithout(cache.getCellWithout(once, twice), fixed);
+		if(singles == cache.EMPTYMASK)
+			return false;
+		for(int bits = singles; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int value = cache.getFirstOption(bits);
+			int mask  = cache.getMask(value);
+			int idx   = 0;
+			while(idx < coords.length && !cache.doesCellContain(cells[coords[idx]], mask))
+				idx++;
+			if(idx == coords.length) {
+				/* Al fijar los anteriores, el valor se ha quedado sin sitio */
+				throw DeadEndException.signal();
+			}
+			sudoku.assign(coords[idx], value + 1);
+		}
+		return true;
+	}
+
+	public String toString() {
+		return "HiddenSingles";
+	}
+}
@@ -0,0 +1,109 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public final class HiddenSubsets extends Strategy {
+
+	/**
+	 * Parejas, trios... ocultos ("hidden pairs / triples").
+	 *
+	 * Es el reverso de NakedSubsets: si "size" valores libres del grupo
+	 * solo pueden ir, entre todos, en "size" celdas, esas celdas tienen
+	 * que tomar esos valores, y se les puede quitar cualquier otro.
+	 */
+
+	// estrategias predefinidas
+	public static final HiddenSubsets PAIRS   = new HiddenSubsets(2, 5);
+	public static final HiddenSubsets TRIPLES = new HiddenSubsets(3, 7);
+
+	private final int size;
+	private final int cost;
+
+	public HiddenSubsets(final int size, final int cost) {
+		this.size = size;
+		this.cost = cost;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public int getCost() {
+		return cost;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final Cache cache  = sudoku.getCache();
+		final int[] coords = cache.getUnit(unit);
+		final int[] cells  = sudoku.getCells();
+		/* Valores y posiciones de las celdas libres */
+		int used   = cache.EMPTYMASK;
+		int values = cache.EMPTYMASK;
+		for(int idx = 0; idx < coords.length; idx++) {
+			int cell = cells[coords[idx]];
+			if(cache.getLength(cell) > 1) {
+				used   = cache.getCellCombined(used, cache.getMask(idx));
+				values = cache.getCellCombined(values, cell);
+			}
+		}
+		if(cache.getLength(used) <= size)
+			return false;
+		/* Solo me interesan los valores que caben en "size" celdas o menos */
+		int candidates = cache.EMPTYMASK;
+		for(int bits = values; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int value = cache.getFirstOption(bits);
+			if(cache.getLength(positions(sudoku, coords, used, value)) <= size)
+				candidates = cache.getCellCombined(candidates, cache.getMask(value));
+		}
+		if(cache.getLength(candidates) < size)
+			return false;
+		return search(sudoku, coords, used, candidates, cache.EMPTYMASK, cache.EMPTYMASK, size);
+	}
+
+	private final int positions(final Sudoku sudoku, final int[] coords, final int used, final int value) {
+		/** Devuelve la mascara de posiciones libres donde puede ir el valor */
+		final Cache cache = sudoku.getCache();
+		final int[] cells = sudoku.getCells();
+		final int mask    = cache.getMask(value);
+		int out = cache.EMPTYMASK;
+		for(int bits = used; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int index = cache.getFirstOption(bits);
+			if(cache.doesCellContain(cells[coords[index]], mask))
+				out = cache.getCellCombined(out, cache.getMask(index));
+		}
+		return out;
+	}
+
+	private final boolean search(final Sudoku sudoku, final int[] coords, final int used,
+			final int candidates, final int chosen, final int comb, final int left) throws DeadEndException {
+		/** Recorre los subconjuntos de "size" valores de candidates.
+		 *
+		 * - chosen es la mascara de valores ya elegidos.
+		 * - comb es la combinacion de las posiciones de esos valores.
+		 * - left es el numero de valores que quedan por elegir.
+		 */
+		final Cache cache = sudoku.getCache();
+		if(left == 0) {
+			if(cache.getLength(comb) < size) {
+				/* "size" valores que no caben en "size" celdas */
+				throw DeadEndException.signal();
+			}
+			return sudoku.drop(coords, comb, cache.getCellWithout(cache.FULLCELL, chosen));
+		}
+		for(int bits = candidates; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int value  = cache.getFirstOption(bits);
+			int update = cache.getCellCombined(comb, positions(sudoku, coords, used, value));
+			if(cache.getLength(update) > size)
+				continue;
+			if(search(sudoku, coords, used, cache.getMaskWithoutFirst(bits),
+					cache.getCellCombined(chosen, cache.getMask(value)), update, left - 1))
+				return true;
+		}
+		return false;
+	}
+
+	public String toString() {
+		return "HiddenSubsets(" + size + ")";
+	}
+}
@@ -0,0 +1,104 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public final class Intersections extends Strategy {
+
+	/**
+	 * Intersecciones entre cuadros y filas o columnas.
+	 *
+	 * - Parejas apuntadoras ("pointing pairs"): si dentro de un cuadro
+	 *   un valor solo puede ir en una fila (o columna), el valor tiene
+	 *   que estar en la parte de la fila que cruza el cuadro, y se puede
+	 *   quitar del resto de la fila.
+	 * - Reduccion fila/cuadro ("box/line reduction"): si dentro de una
+	 *   fila (o columna) un valor solo puede ir en un cuadro, se puede
+	 *   quitar del resto del cuadro.
+	 */
+
+	// coste de la estrategia (ver Strategy.getCost)
+	public static final int COST = 3;
+
+	@Override
+	public int getCost() {
+		return COST;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final Cache cache  = sudoku.getCache();
+		final int[] coords = cache.getUnit(unit);
+		final int[] cells  = sudoku.getCells();
+		final int side     = cache.SIDE;
+		final int group    = unit / cache.DIMS;
+		final int index    = unit % cache.DIMS;
+		/* Valores libres del grupo */
+		int values = cache.EMPTYMASK;
+		for(int idx = 0; idx < coords.length; idx++) {
+			int cell = cells[coords[idx]];
+			if(cache.getLength(cell) > 1)
+				values = cache.getCellCombined(values, cell);
+		}
+		for(int bits = values; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int mask = cache.getMask(cache.getFirstOption(bits));
+			/* Filas y columnas (dentro del cuadro) o cuadros (dentro de
+			 * la fila o columna) donde puede ir el valor.
+			 */
+			int first  = cache.EMPTYMASK;
+			int second = cache.EMPTYMASK;
+			for(int idx = 0; idx < coords.length; idx++) {
+				if(cache.doesCellContain(cells[coords[idx]], mask)) {
+					first  = cache.getCellCombined(first, cache.getMask(idx / side));
+					second = cache.getCellCombined(second, cache.getMask(idx % side));
+				}
+			}
+			if(group == 2) {
+				/* Cuadro: pruebo su fila y su columna */
+				if(cache.getLength(first) == 1) {
+					int row  = (index / side) * side + cache.getFirstOption(first);
+					int skip = blockMask(cache, index % side);
+					if(sudoku.drop(cache.getRow(row), cache.getCellWithout(sudoku.getUnfixed(cache.getRow(row)), skip), mask))
+						return true;
+				}
+				if(cache.getLength(second) == 1) {
+					int col  = (index % side) * side + cache.getFirstOption(second);
+					int skip = blockMask(cache, index / side);
+					if(sudoku.drop(cache.getCol(col), cache.getCellWithout(sudoku.getUnfixed(cache.getCol(col)), skip), mask))
+						return true;
+				}
+			} else if(cache.getLength(first) == 1) {
+				/* Fila o columna: las posiciones idx / side son los cuadros */
+				int block = cache.getFirstOption(first);
+				int square;
+				int skip;
+				if(group == 0) {
+					square = (index / side) * side + block;
+					skip   = blockMask(cache, index % side);
+				} else {
+					square = block * side + index / side;
+					skip   = stripeMask(cache, index % side);
+				}
+				int[] offsets = cache.getSquare(square);
+				if(sudoku.drop(offsets, cache.getCellWithout(sudoku.getUnfixed(offsets), skip), mask))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static final int blockMask(final Cache cache, final int block) {
+		/** Posiciones [block * SIDE, (block + 1) * SIDE) de un grupo */
+		return cache.getMaskUpto((block + 1) * cache.SIDE) & ~cache.getMaskUpto(block * cache.SIDE);
+	}
+
+	private static final int stripeMask(final Cache cache, final int stripe) {
+		/** Posiciones de un cuadro con indice % SIDE == stripe (una columna) */
+		int out = cache.EMPTYMASK;
+		for(int index = stripe; index < cache.DIMS; index += cache.SIDE)
+			out = cache.getCellCombined(out, cache.getMask(index));
+		return out;
+	}
+
+	public String toString() {
+		return "Intersections";
+	}
+}
@@ -0,0 +1,271 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class LongCache {
+
+	/**
+	 * Version de Cache con mascaras de tipo long.
+	 *
+	 * Cache guarda las opciones de cada celda en un int, un bit por
+	 * valor, asi que no admite mas de 31 valores: el sudoku mas grande
+	 * que puede representar es el de lado 5 (25x25). Esta clase hace lo
+	 * mismo con mascaras long, para sudokus de lado 6 (36x36) hasta 8
+	 * (64x64), y es la que usan LongSudoku y LongSolutions.
+	 *
+	 * Es una copia deliberada de Cache, con los mismos nombres, en vez
+	 * de una version generica de las dos: las mascaras son tipos
+	 * primitivos, y asi los sudokus de 9x9 siguen usando int sin ningun
+	 * coste extra.
+	 *
+	 * Como Cache, es inmutable y se comparte por lado (ver forSide).
+	 */
+
+	// lado minimo y maximo que necesita (o admite) mascaras long
+	public static final int MIN_SIDE = 6;
+	public static final int MAX_SIDE = 8;
+
+	// instancias compartidas, por lado (ver Cache.forSide)
+	private static final AtomicReferenceArray<LongCache> REGISTRY =
+			new AtomicReferenceArray<LongCache>(MAX_SIDE + 1);
+
+	// numero de celdas a cada lado de un cuadro
+	public final int SIDE;
+	// numero de celdas a cada lado del sudoku (SIDE * SIDE)
+	public final int DIMS;
+	// numero total de celdas del sudoku
+	public final int CELLS;
+	// valor de una celda sin restringir (todos los bits a 1)
+	public final long FULLCELL;
+	// mascara vacia (sin opciones)
+	public final long EMPTYMASK;
+	// numero de grupos: filas, columnas y cuadros (ver getUnit)
+	public final int UNITS;
+	// numero de vecinos de cada celda (ver Cache.getPeers)
+	public final int PEERS;
+
+	private final int[][] ROW;
+	private final int[][] COL;
+	private final int[][] SQUARE;
+	private final int[][] UNIT;
+	private final int[] CELL_UNIT;
+	private final int[] CELL_INDEX;
+	private final int[] PEER;
+
+	public LongCache(int side) {
+		if(side < 1 || side > MAX_SIDE) {
+			throw new IllegalArgumentException(
+					String.format("Lado de sudoku no soportado: %d (maximo %d)", side, MAX_SIDE));
+		}
+		SIDE       = side;
+		DIMS       = SIDE * SIDE;
+		CELLS      = DIMS * DIMS;
+		FULLCELL   = getMaskUpto(DIMS);
+		EMPTYMASK  = 0;
+		UNITS      = 3 * DIMS;
+		PEERS      = 3 * DIMS - 2 * SIDE - 1;
+		ROW        = buildRow();
+		COL        = buildCol();
+		SQUARE     = buildSquare();
+		UNIT       = buildUnit();
+		CELL_UNIT  = buildCellUnit();
+		CELL_INDEX = buildCellIndex();
+		PEER       = buildPeer();
+	}
+
+	public static LongCache forSide(final int side) {
+		/** Devuelve el LongCache compartido para el lado dado (ver Cache.forSide) */
+		if(side < 1 || side > MAX_SIDE) {
+			throw new IllegalArgumentException(
+					String.format("Lado de sudoku no soportado: %d (maximo %d)", side, MAX_SIDE));
+		}
+		LongCache cache = REGISTRY.get(side);
+		if(cache == null) {
+			REGISTRY.compareAndSet(side, null, new LongCache(side));
+			cache = REGISTRY.get(side);
+		}
+		return cache;
+	}
+
+	public final int[] translate(final int coord1, final int coord2) {
+		/** Traduce coordenadas (fila, columna) a (cuadro, indice) y viceversa */
+		final int aGroup  = coord1 / SIDE;
+		final int aOffset = coord1 % SIDE;
+		final int bGroup  = coord2 / SIDE;
+		final int bOffset = coord2 % SIDE;
+		final int[] result = { aGroup * SIDE + bGroup, aOffset * SIDE + bOffset };
+		return result;
+	}
+
+	public final int getOffset(final int row, final int col) {
+		/** Devuelve el offset de la celda dentro del array */
+		return row * DIMS + col;
+	}
+
+	private final int[][] buildRow() {
+		int[][] out = new int[DIMS][DIMS];
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				out[row][col] = getOffset(row, col);
+			}
+		}
+		return out;
+	}
+
+	private final int[][] buildCol() {
+		int[][] out = new int[DIMS][DIMS];
+		for(int col = 0; col < DIMS; col++) {
+			for(int row = 0; row < DIMS; row++) {
+				out[col][row] = getOffset(row, col);
+			}
+		}
+		return out;
+	}
+
+	private final int[][] buildSquare() {
+		int[][] out = new int[DIMS][DIMS];
+		for(int square = 0; square < DIMS; square++) {
+			for(int index = 0; index < DIMS; index++) {
+				int[] xlate = translate(square, index);
+				out[square][index] = getOffset(xlate[0], xlate[1]);
+			}
+		}
+		return out;
+	}
+
+	private final int[] buildPeer() {
+		/** Igual que Cache.buildPeer */
+		int[] out = new int[CELLS * PEERS];
+		for(int square = 0; square < DIMS; square++) {
+			for(int index = 0; index < DIMS; index++) {
+				int offset  = SQUARE[square][index];
+				int rowSkip = (square % SIDE) * SIDE;
+				int colSkip = (square / SIDE) * SIDE;
+				int[] xlate = translate(square, index);
+				int at      = offset * PEERS;
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos != index)
+						out[at++] = SQUARE[square][pos];
+				}
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos < rowSkip || pos >= rowSkip + SIDE)
+						out[at++] = ROW[xlate[0]][pos];
+				}
+				for(int pos = 0; pos < DIMS; pos++) {
+					if(pos < colSkip || pos >= colSkip + SIDE)
+						out[at++] = COL[xlate[1]][pos];
+				}
+			}
+		}
+		return out;
+	}
+
+	private final int[][] buildUnit() {
+		int[][] out = new int[UNITS][];
+		for(int index = 0; index < DIMS; index++) {
+			out[index]            = ROW[index];
+			out[DIMS + index]     = COL[index];
+			out[2 * DIMS + index] = SQUARE[index];
+		}
+		return out;
+	}
+
+	private final int[] buildCellUnit() {
+		int[] out = new int[CELLS * 3];
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				int offset = getOffset(row, col);
+				out[offset * 3]     = row;
+				out[offset * 3 + 1] = DIMS + col;
+				out[offset * 3 + 2] = 2 * DIMS + translate(row, col)[0];
+			}
+		}
+		return out;
+	}
+
+	private final int[] buildCellIndex() {
+		int[] out = new int[CELLS * 3];
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				int offset = getOffset(row, col);
+				out[offset * 3]     = col;
+				out[offset * 3 + 1] = row;
+				out[offset * 3 + 2] = translate(row, col)[1];
+			}
+		}
+		return out;
+	}
+
+	protected final int[] getUnit(final int unit) {
+		/** Devuelve las coordenadas de las celdas del grupo (ver Cache.getUnit) */
+		return UNIT[unit];
+	}
+
+	protected final int getCellUnit(final int offset, final int group) {
+		return CELL_UNIT[offset * 3 + group];
+	}
+
+	protected final int getCellIndex(final int offset, final int group) {
+		return CELL_INDEX[offset * 3 + group];
+	}
+
+	protected final int[] getRow(final int row) {
+		return ROW[row];
+	}
+
+	protected final int[] getCol(final int col) {
+		return COL[col];
+	}
+
+	protected final int[] getSquare(final int square) {
+		return SQUARE[square];
+	}
+
+	public final int[] getPeers() {
+		/** Vecinos de todas las celdas (ver Cache.getPeers) */
+		return PEER;
+	}
+
+	protected final long getMask(final int index) {
+		/** Devuelve la mascara de bits de un valor (ver Cache.getMask) */
+		return 1L << index;
+	}
+
+	protected final long getMaskUpto(final int index) {
+		/** Mascara con los valores de 0 (inclusive) a index (exclusive) */
+		return (index >= 64) ? -1L : (1L << index) - 1;
+	}
+
+	protected final long getMaskWithout(final long mask, final int index) {
+		return mask & ~(1L << index);
+	}
+
+	protected final int getFirstOption(final long mask) {
+		return Long.numberOfTrailingZeros(mask);
+	}
+
+	protected final long getMaskWithoutFirst(final long mask) {
+		return mask & (mask - 1);
+	}
+
+	protected final long getCellWithout(final long cell, final long options) {
+		return cell & ~options;
+	}
+
+	protected final long getCellCombined(final long cell, final long options) {
+		return cell | options;
+	}
+
+	protected final boolean doesCellContain(final long cell, final long options) {
+		return ((cell & options) == options);
+	}
+
+	protected final int getLength(final long cell) {
+		return Long.bitCount(cell);
+	}
+
+	protected final int getValue(final long cell) {
+		/** Valor de una celda fijada (ver Cache.getValue) */
+		return Long.numberOfTrailingZeros(cell) + 1;
+	}
+}
@@ -0,0 +1,163 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+
+public class LongSolutions implements Iterator<LongSudoku> {
+
+	/** Iterador sobre las soluciones de un LongSudoku.
+	 *
+	 * Es el mismo motor que Solutions (busqueda sin recursion sobre
+	 * una unica copia del sudoku, con la pila de cambios activada),
+	 * con los valores pendientes de cada nivel en mascaras long.
+	 */
+
+	private final LongSudoku work;
+	private final LongCache cache;
+	// pila de decisiones (ver Solutions)
+	private final int[] pivots;
+	private final long[] remaining;
+	private final int[] marks;
+	private int depth;
+	private boolean ready;
+	private boolean started;
+	private boolean done;
+	private final boolean shuffle;
+	// true si los empates entre pivotes se deshacen al azar
+	private final boolean ties;
+	private final SplittableRandom random;
+	private int deadends;
+	private long nodes;
+
+	public LongSolutions(LongSudoku root) {
+		this(root, true);
+	}
+
+	public LongSolutions(LongSudoku root, boolean shuffle) {
+		this(root, shuffle ? SearchConfig.RANDOM : SearchConfig.ORDERED);
+	}
+
+	public LongSolutions(LongSudoku root, SearchConfig config) {
+		/** Construye el iterador con la configuracion dada (ver SearchConfig).
+		 *
+		 * Este motor no implementa TieBreak.DEGREE; lo trata como FIRST.
+		 */
+		this.shuffle   = config.isShuffle();
+		this.ties      = (config.getTieBreak() == Sorter.TieBreak.RANDOM);
+		this.random    = config.newRandom();
+		this.work      = new LongSudoku(root);
+		this.cache     = root.getCache();
+		this.pivots    = new int[cache.CELLS];
+		this.remaining = new long[cache.CELLS];
+		this.marks     = new int[cache.CELLS];
+		work.enableTrail();
+	}
+
+	public int getDeadends() {
+		return deadends;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	private final int pivot(final SplittableRandom random) {
+		/** Celda libre con menos opciones, o -1 si no hay (ver Sorter.pivot) */
+		final long[] cells = work.getCells();
+		int best = -1;
+		int len  = cache.DIMS + 1;
+		int ties = 0;
+		for(int i = 0; i < cache.CELLS; i++) {
+			final int current = cache.getLength(cells[i]);
+			if(current <= 1 || current > len)
+				continue;
+			if(current < len) {
+				best = i;
+				len  = current;
+				ties = 1;
+			}
+			else if(random != null && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private final boolean open() {
+		/** Abre un nuevo nivel en la pila (ver Solutions.open) */
+		int pivot = pivot(ties ? random : null);
+		if(pivot < 0) {
+			return true;
+		}
+		pivots[depth]    = pivot;
+		remaining[depth] = work.getAt(pivot);
+		marks[depth]     = work.mark();
+		depth++;
+		return false;
+	}
+
+	private final int pick(final long options, final SplittableRandom random) {
+		if(random == null) {
+			return cache.getFirstOption(options);
+		}
+		long bits = options;
+		for(int skip = random.nextInt(cache.getLength(options)); skip > 0; skip--) {
+			bits = cache.getMaskWithoutFirst(bits);
+		}
+		return cache.getFirstOption(bits);
+	}
+
+	private final boolean search() {
+		/** Avanza la busqueda hasta la siguiente solucion (ver Solutions.search) */
+		SplittableRandom random = shuffle ? this.random : null;
+		if(!started) {
+			started = true;
+			if(open())
+				return true;
+		}
+		while(depth > 0) {
+			final int level    = depth - 1;
+			final long options = remaining[level];
+			if(options == cache.EMPTYMASK) {
+				depth--;
+				continue;
+			}
+			final int index = pick(options, random);
+			remaining[level] = cache.getMaskWithout(options, index);
+			work.undo(marks[level]);
+			nodes += 1;
+			if(!work.tryFix(pivots[level], index + 1)) {
+				deadends += 1;
+				continue;
+			}
+			if(open())
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(!ready && !done) {
+			ready = search();
+			done  = !ready;
+		}
+		return ready;
+	}
+
+	@Override
+	public LongSudoku next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ready = false;
+		return new LongSudoku(work);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,263 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+public final class Metrics {
+
+	/**
+	 * Contadores globales del solver.
+	 *
+	 * Estan desactivados por defecto. Se activan arrancando la JVM con
+	 * -Dsudoku.metrics=true; ENABLED es un static final, asi que el JIT
+	 * lo trata como una constante y, desactivado, elimina por completo
+	 * los "if(Metrics.ENABLED)" de los puntos de medida. No cuesta ni
+	 * una comparacion.
+	 *
+	 * Activados, los contadores son LongAdder (un contador por hilo que
+	 * se suman al leerlos), para que los hilos de ParallelSolutions o
+	 * de Batch no se peleen por la misma linea de cache:
+	 *
+	 * - FIXES: llamadas a Sudoku.fix.
+	 * - NARROWED: celdas a las que se ha quitado algun valor (setAt).
+	 * - DEADENDS: caminos sin salida señalados dentro del motor
+	 *   (DeadEndException.signal).
+	 * - SUBSETS: subconjuntos examinados por CombinedSubsets.
+	 * - NODES: nodos de busqueda, de Solutions y de Bitboard9.
+	 * - MAX_DEPTH: profundidad maxima de Solutions.
+	 *
+	 * Ademas se mide la latencia de cada Sudoku.solve y countSolutions,
+	 * en un histograma con un cubo por potencia de dos de nanosegundos.
+	 *
+	 * Para leerlos: snapshot() devuelve una copia inmutable, y register()
+	 * los publica como MBean (ver SolverMetricsMXBean).
+	 */
+
+	// interruptor general, fijado al cargar la clase
+	public static final boolean ENABLED = Boolean.getBoolean("sudoku.metrics");
+	// nombre con el que se registra el MBean
+	public static final String OBJECT_NAME = "es.nextiraone.ing.sudoku:type=SolverMetrics";
+
+	static final LongAdder FIXES    = new LongAdder();
+	static final LongAdder NARROWED = new LongAdder();
+	static final LongAdder DEADENDS = new LongAdder();
+	static final LongAdder SUBSETS  = new LongAdder();
+	static final LongAdder NODES    = new LongAdder();
+	static final LongAccumulator MAX_DEPTH = new LongAccumulator(Math::max, 0);
+
+	// histograma de latencias: el cubo i cuenta las de [2^i, 2^(i+1)) ns
+	private static final int BUCKETS = Long.SIZE;
+	private static final LongAdder[] LATENCY = new LongAdder[BUCKETS];
+	private static final LongAdder LATENCY_SUM = new LongAdder();
+
+	static {
+		for(int bucket = 0; bucket < BUCKETS; bucket++) {
+			LATENCY[bucket] = new LongAdder();
+		}
+	}
+
+	private Metrics() { }
+
+	public static void recordLatency(final long nanos) {
+		/** Apunta la duracion de una resolucion */
+		final long value = Math.max(nanos, 1);
+		LATENCY[63 - Long.numberOfLeadingZeros(value)].increment();
+		LATENCY_SUM.add(value);
+	}
+
+	public static void reset() {
+		/** Pone todos los contadores a cero */
+		FIXES.reset();
+		NARROWED.reset();
+		DEADENDS.reset();
+		SUBSETS.reset();
+		NODES.reset();
+		MAX_DEPTH.reset();
+		for(LongAdder bucket: LATENCY) {
+			bucket.reset();
+		}
+		LATENCY_SUM.reset();
+	}
+
+	public static Snapshot snapshot() {
+		/** Copia de los contadores en este momento */
+		final long[] latency = new long[BUCKETS];
+		for(int bucket = 0; bucket < BUCKETS; bucket++) {
+			latency[bucket] = LATENCY[bucket].sum();
+		}
+		return new Snapshot(FIXES.sum(), NARROWED.sum(), DEADENDS.sum(), SUBSETS.sum(),
+				NODES.sum(), MAX_DEPTH.get(), latency, LATENCY_SUM.sum());
+	}
+
+	public static ObjectName register() throws JMException {
+		/** Registra el MBean en el servidor de la plataforma, si no lo estaba ya */
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name    = new ObjectName(OBJECT_NAME);
+		if(!server.isRegistered(name)) {
+			server.registerMBean(new Bean(), name);
+		}
+		return name;
+	}
+
+	public static final class Snapshot {
+
+		/** Bean inmutable con el valor de los contadores en un instante */
+
+		private final long fixes;
+		private final long narrowed;
+		private final long deadends;
+		private final long subsets;
+		private final long nodes;
+		private final long maxDepth;
+		private final long[] latency;
+		private final long latencySum;
+		private final long solves;
+
+		Snapshot(final long fixes, final long narrowed, final long deadends, final long subsets,
+				final long nodes, final long maxDepth, final long[] latency, final long latencySum) {
+			this.fixes      = fixes;
+			this.narrowed   = narrowed;
+			this.deadends   = deadends;
+			this.subsets    = subsets;
+			this.nodes      = nodes;
+			this.maxDepth   = maxDepth;
+			this.latency    = latency;
+			this.latencySum = latencySum;
+			long count = 0;
+			for(long bucket: latency) {
+				count += bucket;
+			}
+			this.solves     = count;
+		}
+
+		public long getFixes() {
+			return fixes;
+		}
+
+		public long getNarrowed() {
+			return narrowed;
+		}
+
+		public long getDeadends() {
+			return deadends;
+		}
+
+		public long getSubsets() {
+			return subsets;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getMaxDepth() {
+			return maxDepth;
+		}
+
+		public long getSolves() {
+			/** Numero de latencias apuntadas */
+			return solves;
+		}
+
+		public long getLatencyBucket(final int bucket) {
+			/** Latencias en [2^bucket, 2^(bucket+1)) nanosegundos */
+			return latency[bucket];
+		}
+
+		public double getMeanLatencyNanos() {
+			return (solves == 0) ? 0 : (double) latencySum / solves;
+		}
+
+		public long getLatencyPercentileNanos(final double percentile) {
+			/** Cota superior del percentil dado (de 0 a 100), con la resolucion del cubo */
+			if(solves == 0) {
+				return 0;
+			}
+			final long rank = (long) Math.ceil(percentile / 100.0 * solves);
+			long seen = 0;
+			for(int bucket = 0; bucket < BUCKETS; bucket++) {
+				seen += latency[bucket];
+				if(seen >= Math.max(rank, 1))
+					return (bucket >= 62) ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+			}
+			return Long.MAX_VALUE;
+		}
+
+		public String toString() {
+			return String.format("fixes=%d narrowed=%d deadends=%d subsets=%d nodes=%d maxDepth=%d " +
+					"solves=%d mean=%.1fus p50<%dus p99<%dus",
+					fixes, narrowed, deadends, subsets, nodes, maxDepth, solves,
+					getMeanLatencyNanos() / 1000, getLatencyPercentileNanos(50) / 1000,
+					getLatencyPercentileNanos(99) / 1000);
+		}
+	}
+
+	private static final class Bean implements SolverMetricsMXBean {
+
+		@Override
+		public boolean isEnabled() {
+			return ENABLED;
+		}
+
+		@Override
+		public long getFixes() {
+			return FIXES.sum();
+		}
+
+		@Override
+		public long getNarrowed() {
+			return NARROWED.sum();
+		}
+
+		@Override
+		public long getDeadends() {
+			return DEADENDS.sum();
+		}
+
+		@Override
+		public long getSubsets() {
+			return SUBSETS.sum();
+		}
+
+		@Override
+		public long getNodes() {
+			return NODES.sum();
+		}
+
+		@Override
+		public long getMaxDepth() {
+			return MAX_DEPTH.get();
+		}
+
+		@Override
+		public long getSolves() {
+			return snapshot().getSolves();
+		}
+
+		@Override
+		public double getMeanLatencyMicros() {
+			return snapshot().getMeanLatencyNanos() / 1000;
+		}
+
+		@Override
+		public long getP50LatencyMicros() {
+			return snapshot().getLatencyPercentileNanos(50) / 1000;
+		}
+
+		@Override
+		public long getP99LatencyMicros() {
+			return snapshot().getLatencyPercentileNanos(99) / 1000;
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
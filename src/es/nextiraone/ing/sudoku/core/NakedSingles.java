@@ -0,0 +1,46 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public final class NakedSingles extends Strategy {
+
+	/**
+	 * Celdas con un solo valor posible ("naked singles").
+	 *
+	 * Quita los valores de las celdas ya fijadas del resto de celdas
+	 * del grupo. Sudoku.drop ya propaga cada celda en cuanto se queda
+	 * con un solo valor, asi que normalmente no encuentra nada; sirve
+	 * de red de seguridad, y es practicamente gratis.
+	 */
+
+	// coste de la estrategia (ver Strategy.getCost)
+	public static final int COST = 1;
+
+	@Override
+	public int getCost() {
+		return COST;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final Cache cache  = sudoku.getCache();
+		final int[] coords = cache.getUnit(unit);
+		final int[] cells  = sudoku.getCells();
+		int fixed = cache.EMPTYMASK;
+		int used  = cache.EMPTYMASK;
+		for(int idx = 0; idx < coords.length; idx++) {
+			int cell = cells[coords[idx]];
+			if(cache.getLength(cell) == 1) {
+				fixed = cache.getCellCombined(fixed, cell);
+			} else {
+				used = cache.getCellCombined(used, cache.getMask(idx));
+			}
+		}
+		if(fixed == cache.EMPTYMASK || used == cache.EMPTYMASK)
+			return false;
+		return sudoku.drop(coords, used, fixed);
+	}
+
+	public String toString() {
+		return "NakedSingles";
+	}
+}
@@ -0,0 +1,90 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public final class NakedSubsets extends Strategy {
+
+	/**
+	 * Parejas, trios... desnudos ("naked pairs / triples").
+	 *
+	 * Si "size" celdas libres del grupo no pueden tomar entre todas
+	 * mas de "size" valores, esos valores no pueden ir en ninguna otra
+	 * celda del grupo. Es la misma idea que CombinedSubsets, pero solo
+	 * para subconjuntos de un tamaño fijo, lo que la hace mucho mas
+	 * barata.
+	 */
+
+	// estrategias predefinidas
+	public static final NakedSubsets PAIRS   = new NakedSubsets(2, 4);
+	public static final NakedSubsets TRIPLES = new NakedSubsets(3, 6);
+
+	private final int size;
+	private final int cost;
+
+	public NakedSubsets(final int size, final int cost) {
+		this.size = size;
+		this.cost = cost;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public int getCost() {
+		return cost;
+	}
+
+	@Override
+	boolean propagate(final Sudoku sudoku, final int unit) throws DeadEndException {
+		final Cache cache  = sudoku.getCache();
+		final int[] coords = cache.getUnit(unit);
+		final int[] cells  = sudoku.getCells();
+		/* Solo me interesan las celdas libres con "size" opciones o menos */
+		int used = cache.EMPTYMASK;
+		int candidates = cache.EMPTYMASK;
+		for(int idx = 0; idx < coords.length; idx++) {
+			int length = cache.getLength(cells[coords[idx]]);
+			if(length > 1) {
+				used = cache.getCellCombined(used, cache.getMask(idx));
+				if(length <= size)
+					candidates = cache.getCellCombined(candidates, cache.getMask(idx));
+			}
+		}
+		if(cache.getLength(used) <= size || cache.getLength(candidates) < size)
+			return false;
+		return search(sudoku, coords, used, candidates, cache.EMPTYMASK, cache.EMPTYMASK, size);
+	}
+
+	private final boolean search(final Sudoku sudoku, final int[] coords, final int used,
+			final int candidates, final int chosen, final int comb, final int left) throws DeadEndException {
+		/** Recorre los subconjuntos de "size" celdas de candidates.
+		 *
+		 * - chosen es la mascara de posiciones ya elegidas.
+		 * - comb es la combinacion de los valores de esas posiciones.
+		 * - left es el numero de posiciones que quedan por elegir.
+		 */
+		final Cache cache = sudoku.getCache();
+		if(left == 0) {
+			if(cache.getLength(comb) < size) {
+				/* "size" celdas con menos de "size" valores */
+				throw DeadEndException.signal();
+			}
+			return sudoku.drop(coords, cache.getCellWithout(used, chosen), comb);
+		}
+		final int[] cells = sudoku.getCells();
+		for(int bits = candidates; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int index  = cache.getFirstOption(bits);
+			int update = cache.getCellCombined(comb, cells[coords[index]]);
+			if(cache.getLength(update) > size)
+				continue;
+			if(search(sudoku, coords, used, cache.getMaskWithoutFirst(bits),
+					cache.getCellCombined(chosen, cache.getMask(index)), update, left - 1))
+				return true;
+		}
+		return false;
+	}
+
+	public String toString() {
+		return "NakedSubsets(" + size + ")";
+	}
+}
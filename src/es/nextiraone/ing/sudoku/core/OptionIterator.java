@@ -1,11 +1,20 @@
 package es.nextiraone.ing.sudoku.core;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 
-public final class OptionIterator implements Iterable<Integer>, Iterator<Integer> {
+public final class OptionIterator implements Iterable<Integer>, PrimitiveIterator.OfInt {
 	
-	/** Iterador sobre los posibles valores de una celda */
+	/** Iterador sobre los posibles valores de una celda.
+	 *
+	 * Es un iterador de enteros primitivos: nextInt() no reserva
+	 * memoria. El interfaz Iterable<Integer> (y next(), que envuelve
+	 * cada valor en un Integer) se mantiene solo por compatibilidad
+	 * con Cell.getValues(); el codigo interno del solver recorre las
+	 * mascaras directamente (ver Cache.getFirstOption).
+	 */
 
 	private int cell;
 	private final Cache cache;
@@ -29,10 +38,13 @@ public final class OptionIterator implements Iterable<Integer>, Iterator<Integer
 	}
 
 	@Override
-	public final Integer next() {
-		int index = Integer.numberOfTrailingZeros(cell);
-		cell = cache.getMaskWithout(cell, index);
-		return new Integer(index + offset);
+	public final int nextInt() {
+		if(cell == cache.EMPTYMASK) {
+			throw new NoSuchElementException();
+		}
+		int index = cache.getFirstOption(cell);
+		cell = cache.getMaskWithoutFirst(cell);
+		return index + offset;
 	}
 
 	@Override
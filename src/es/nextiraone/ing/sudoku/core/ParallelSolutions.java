@@ -0,0 +1,195 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+
+public class ParallelSolutions {
+
+	/**
+	 * Busqueda de soluciones en paralelo, sobre un ForkJoinPool.
+	 *
+	 * El arbol de busqueda se parte por los pivotes, igual que en
+	 * Solutions: cada valor posible del pivote es una subtarea
+	 * (RecursiveTask) con su propia copia del sudoku, y el pool
+	 * reparte las subtareas entre los hilos mediante work-stealing.
+	 *
+	 * Se deja de partir el arbol cuando:
+	 *
+	 * - Se ha llegado a la profundidad splitDepth, o
+	 * - Al sudoku le quedan menos de "threshold" celdas libres.
+	 *
+	 * A partir de ahi, cada tarea recorre su rama de forma secuencial
+	 * con Solutions, y va entregando las soluciones a un SolutionSink.
+	 *
+	 * La aleatoriedad se controla con un SearchConfig. Cada subtarea
+	 * recibe un split() del generador de su padre, creado antes de
+	 * lanzarla, asi que con una semilla fija cada rama recorre siempre
+	 * el mismo arbol, la ejecute el hilo que la ejecute (el orden en que
+	 * llegan las soluciones al sumidero si puede variar).
+	 *
+	 * Si no se da configuracion, se busca con SearchConfig.RANDOM, salvo
+	 * para contar (count), que usa SearchConfig.ORDERED como
+	 * Solutions.countSolutions: para contar hay que recorrer el mismo
+	 * arbol de todas formas, y el orden aleatorio solo cuesta.
+	 */
+
+	// valores por defecto de los parametros de particion
+	public static final int DEFAULT_SPLIT_DEPTH = 8;
+	public static final int DEFAULT_THRESHOLD   = 20;
+
+	private final Sudoku root;
+	private final ForkJoinPool pool;
+	private final int splitDepth;
+	private final int threshold;
+	// configuracion dada, o null para la de por defecto
+	private final SearchConfig config;
+	private volatile long deadends;
+
+	public ParallelSolutions(final Sudoku root) {
+		/** Busqueda sobre el pool comun, con la particion por defecto */
+		this(root, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH, DEFAULT_THRESHOLD);
+	}
+
+	public ParallelSolutions(final Sudoku root, final SearchConfig config) {
+		/** Busqueda sobre el pool comun, con la configuracion dada */
+		this(root, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH, DEFAULT_THRESHOLD, config);
+	}
+
+	public ParallelSolutions(final Sudoku root, final ForkJoinPool pool, final int splitDepth, final int threshold) {
+		this(root, pool, splitDepth, threshold, null);
+	}
+
+	public ParallelSolutions(final Sudoku root, final ForkJoinPool pool, final int splitDepth, final int threshold, final SearchConfig config) {
+		this.root       = root;
+		this.pool       = pool;
+		this.splitDepth = splitDepth;
+		this.threshold  = threshold;
+		this.config     = config;
+		this.deadends   = 0;
+	}
+
+	public long getDeadends() {
+		/** Cuenta de ramas sin solucion encontradas en la ultima busqueda */
+		return deadends;
+	}
+
+	public <S extends SolutionSink> S solve(final S sink) {
+		/** Busca soluciones hasta agotar el arbol o cerrar el sumidero */
+		return solve(sink, (config != null) ? config : SearchConfig.RANDOM);
+	}
+
+	private <S extends SolutionSink> S solve(final S sink, final SearchConfig config) {
+		deadends = pool.invoke(new Branch(root, -1, 0, 0, sink, config, config.newRandom()));
+		return sink;
+	}
+
+	public long count() {
+		/** Cuenta todas las soluciones del sudoku */
+		return count(Long.MAX_VALUE);
+	}
+
+	public long count(final long limit) {
+		/** Cuenta las soluciones del sudoku, hasta un maximo de "limit" */
+		return solve(SolutionSink.count(limit), (config != null) ? config : SearchConfig.ORDERED).getFound();
+	}
+
+	public List<Sudoku> first(final int n) {
+		/** Devuelve (como mucho) las n primeras soluciones encontradas */
+		return solve(SolutionSink.first(n)).getSolutions();
+	}
+
+	public void forEach(final Consumer<Sudoku> consumer) {
+		/** Pasa todas las soluciones al consumer, desde varios hilos */
+		solve(SolutionSink.stream(consumer));
+	}
+
+	private final class Branch extends RecursiveTask<Long> {
+
+		/**
+		 * Subtarea de la busqueda: fija el valor del pivote sobre una
+		 * copia del sudoku padre, y despues o bien se parte en nuevas
+		 * subtareas, o bien recorre la rama secuencialmente.
+		 *
+		 * Devuelve el numero de caminos sin salida encontrados.
+		 */
+
+		static final long serialVersionUID = 1;
+
+		private final Sudoku parent;
+		private final int pivot;
+		private final int value;
+		private final int depth;
+		private final SolutionSink sink;
+		private final SearchConfig config;
+		// generador propio de la rama, o null si no se randomiza
+		private final SplittableRandom random;
+
+		Branch(final Sudoku parent, final int pivot, final int value, final int depth, final SolutionSink sink, final SearchConfig config, final SplittableRandom random) {
+			this.parent = parent;
+			this.pivot  = pivot;
+			this.value  = value;
+			this.depth  = depth;
+			this.sink   = sink;
+			this.config = config;
+			this.random = random;
+		}
+
+		@Override
+		protected Long compute() {
+			if(sink.isClosed()) {
+				return 0L;
+			}
+			Sudoku work = new Sudoku(parent);
+			if(pivot >= 0 && !work.tryFix(pivot, value)) {
+				return 1L;
+			}
+			if(depth >= splitDepth || free(work) < threshold) {
+				return sequential(work);
+			}
+			int next = new Sorter(work, config.getTieBreak(), random).pivot();
+			if(next < 0) {
+				sink.offer(work);
+				return 0L;
+			}
+			Cache cache  = work.getCache();
+			int options  = work.getAt(next);
+			Branch[] sub = new Branch[cache.getLength(options)];
+			int index    = 0;
+			for(int bits = options; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+				SplittableRandom split = (random != null) ? random.split() : null;
+				sub[index++] = new Branch(work, next, cache.getFirstOption(bits) + 1, depth + 1, sink, config, split);
+			}
+			invokeAll(sub);
+			long total = 0;
+			for(Branch branch: sub) {
+				total += branch.join();
+			}
+			return total;
+		}
+
+		private final long sequential(final Sudoku work) {
+			/** Recorre la rama secuencialmente, sobre la copia de esta rama */
+			Solutions solutions = Solutions.inPlace(work, config, random);
+			while(!sink.isClosed() && solutions.advance()) {
+				if(!sink.offer(solutions.current()))
+					break;
+			}
+			return solutions.getDeadends();
+		}
+
+		private final int free(final Sudoku work) {
+			/** Cuenta las celdas libres del sudoku */
+			Cache cache = work.getCache();
+			int count   = 0;
+			for(int cell: work.getCells()) {
+				if(cache.getLength(cell) > 1)
+					count++;
+			}
+			return count;
+		}
+	}
+}
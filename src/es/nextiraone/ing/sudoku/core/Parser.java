@@ -0,0 +1,301 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.nio.ByteBuffer;
+
+
+public final class Parser {
+
+	/**
+	 * Carga sudokus desde texto, sin expresiones regulares ni colecciones
+	 * intermedias.
+	 *
+	 * El texto se recorre caracter a caracter, directamente sobre el
+	 * CharSequence, byte[] o ByteBuffer de entrada, y cada celda leida
+	 * se fija en el sudoku en el momento (Sudoku.fix). No se reserva
+	 * memoria aparte del propio Sudoku.
+	 *
+	 * El texto se divide en "palabras": secuencias de digitos y puntos,
+	 * y tambien de letras en sudokus de mas de 9 valores. Cualquier otro
+	 * caracter (espacios, comas, barras, saltos de linea...) es un
+	 * separador, y lo que va desde un '#' hasta el final de la linea es
+	 * un comentario. En sudokus de 9x9 o menores las letras tambien son
+	 * separadores, asi que se pueden leer textos como "Fila 1: 5 3 0 ...".
+	 * Cada palabra puede ser:
+	 *
+	 * - Un numero, si solo tiene digitos y no mas de los necesarios para
+	 *   escribir DIMS (1 digito para 9x9, 2 para 16x16 y 25x25). Es el
+	 *   formato de siempre de Sudoku.fromString: "1 2 0, 0 0 0, ..."
+	 * - Una secuencia de celdas en formato compacto, en otro caso. Cada
+	 *   caracter es una celda: '0' o '.' para las vacias, '1' - '9' para
+	 *   los valores hasta 9, y letras ('A' = 10, 'B' = 11...) para los
+	 *   valores mayores en sudokus de 16x16 y 25x25. Por ejemplo
+	 *   "..3.2.6..9..3.5..1...", en una sola linea o en una por fila.
+	 *
+	 * Las celdas se leen por filas, y se dejan de leer al llegar a CELLS.
+	 *
+	 * Un Parser construido con un LongCache carga LongSudokus (lados
+	 * 6 a 8); en ese caso se usa parseBoard en lugar de parse.
+	 */
+
+	// solo uno de los dos es distinto de null
+	private final Cache cache;
+	private final LongCache longCache;
+	// valor maximo de una celda, y numero de celdas del sudoku
+	private final int dims;
+	private final int cells;
+	// maximo de digitos de una palabra que se lee como numero
+	private final int digits;
+	// true si las letras son valores (DIMS > 9), false si son separadores
+	private final boolean letters;
+	// sudoku en el que se fijan las celdas (null para solo contarlas)
+	private Board target;
+	// celdas leidas en la ultima llamada
+	private int count;
+	// posicion siguiente a la ultima celda leida en la ultima llamada
+	private int end;
+
+	public Parser(final Cache cache) {
+		this.cache     = cache;
+		this.longCache = null;
+		this.dims      = cache.DIMS;
+		this.cells     = cache.CELLS;
+		this.digits    = Integer.toString(dims).length();
+		this.letters   = (dims > 9);
+	}
+
+	public Parser(final LongCache cache) {
+		this.cache     = null;
+		this.longCache = cache;
+		this.dims      = cache.DIMS;
+		this.cells     = cache.CELLS;
+		this.digits    = Integer.toString(dims).length();
+		this.letters   = (dims > 9);
+	}
+
+	public static Parser forSide(final int side) {
+		/** Parser para sudokus del lado dado, con el tipo de mascara que necesite */
+		if(side < LongCache.MIN_SIDE) {
+			return new Parser(Cache.forSide(side));
+		}
+		return new Parser(LongCache.forSide(side));
+	}
+
+	public int getCount() {
+		/** Numero de celdas leidas en la ultima llamada */
+		return count;
+	}
+
+	public int getEnd() {
+		/** Posicion en la entrada siguiente a la ultima celda leida */
+		return end;
+	}
+
+	public Sudoku parse(final CharSequence data) throws DeadEndException {
+		/** Carga un sudoku de un texto, y le aplica la heuristica */
+		Sudoku sudoku = newSudoku();
+		load(sudoku, data, 0, data.length());
+		sudoku.heuristic();
+		return sudoku;
+	}
+
+	public Sudoku parse(final byte[] data, final int from, final int to) throws DeadEndException {
+		/** Carga un sudoku de un texto ASCII, y le aplica la heuristica */
+		Sudoku sudoku = newSudoku();
+		load(sudoku, data, from, to);
+		sudoku.heuristic();
+		return sudoku;
+	}
+
+	public Sudoku parse(final ByteBuffer data) throws DeadEndException {
+		/** Carga un sudoku de los bytes entre position y limit (sin moverlos) */
+		return parse(data, data.position(), data.limit());
+	}
+
+	public Sudoku parse(final ByteBuffer data, final int from, final int to) throws DeadEndException {
+		/** Carga un sudoku de los bytes entre from y to, y le aplica la heuristica */
+		Sudoku sudoku = newSudoku();
+		load(sudoku, data, from, to);
+		sudoku.heuristic();
+		return sudoku;
+	}
+
+	public Board parseBoard(final CharSequence data) throws DeadEndException {
+		/** Igual que parse, pero sirve tambien para los sudokus long */
+		Board board = newBoard();
+		load(board, data, 0, data.length());
+		board.heuristic();
+		return board;
+	}
+
+	public Board parseBoard(final ByteBuffer data, final int from, final int to) throws DeadEndException {
+		/** Igual que parse, pero sirve tambien para los sudokus long */
+		Board board = newBoard();
+		load(board, data, from, to);
+		board.heuristic();
+		return board;
+	}
+
+	private final Sudoku newSudoku() {
+		if(cache == null) {
+			throw new IllegalStateException("Sudoku de lado " + longCache.SIDE + ": usa parseBoard");
+		}
+		return new Sudoku(cache);
+	}
+
+	private final Board newBoard() {
+		return (cache != null) ? new Sudoku(cache) : new LongSudoku(longCache);
+	}
+
+	public int scan(final ByteBuffer data, final int from, final int to) {
+		/** Cuenta las celdas del sudoku entre from y to, sin cargarlo.
+		 *
+		 * Devuelve el numero de celdas (como mucho CELLS). La posicion
+		 * donde acaba el sudoku queda en getEnd().
+		 */
+		try {
+			load(null, data, from, to);
+		} catch(DeadEndException exc) {
+			/* Sin sudoku no se fija nada, asi que no puede pasar */
+		}
+		return count;
+	}
+
+	public void load(final Board sudoku, final CharSequence data, final int from, final int to) throws DeadEndException {
+		/** Fija en el sudoku las celdas leidas de data[from, to) */
+		start(sudoku, from);
+		int i = from;
+		while(i < to && count < cells) {
+			int c = data.charAt(i);
+			if(c == '#') {
+				while(i < to && data.charAt(i) != '\n')
+					i++;
+				continue;
+			}
+			if(!isCell(c)) {
+				i++;
+				continue;
+			}
+			/* Recorro la palabra, calculando su valor por si es un numero */
+			int j = i;
+			int value = 0;
+			boolean numeric = true;
+			for(; j < to && isCell(c = data.charAt(j)); j++) {
+				numeric = numeric && isDigit(c);
+				value   = value * 10 + (c - '0');
+			}
+			if(numeric && j - i <= digits) {
+				put(value, j);
+			} else {
+				for(; i < j && count < cells; i++)
+					put(cellValue(data.charAt(i)), i + 1);
+			}
+			i = j;
+		}
+	}
+
+	public void load(final Board sudoku, final byte[] data, final int from, final int to) throws DeadEndException {
+		/** Fija en el sudoku las celdas leidas de data[from, to) */
+		start(sudoku, from);
+		int i = from;
+		while(i < to && count < cells) {
+			int c = data[i];
+			if(c == '#') {
+				while(i < to && data[i] != '\n')
+					i++;
+				continue;
+			}
+			if(!isCell(c)) {
+				i++;
+				continue;
+			}
+			int j = i;
+			int value = 0;
+			boolean numeric = true;
+			for(; j < to && isCell(c = data[j]); j++) {
+				numeric = numeric && isDigit(c);
+				value   = value * 10 + (c - '0');
+			}
+			if(numeric && j - i <= digits) {
+				put(value, j);
+			} else {
+				for(; i < j && count < cells; i++)
+					put(cellValue(data[i]), i + 1);
+			}
+			i = j;
+		}
+	}
+
+	public void load(final Board sudoku, final ByteBuffer data, final int from, final int to) throws DeadEndException {
+		/** Fija en el sudoku las celdas leidas de data[from, to), con lecturas absolutas */
+		start(sudoku, from);
+		int i = from;
+		while(i < to && count < cells) {
+			int c = data.get(i);
+			if(c == '#') {
+				while(i < to && data.get(i) != '\n')
+					i++;
+				continue;
+			}
+			if(!isCell(c)) {
+				i++;
+				continue;
+			}
+			int j = i;
+			int value = 0;
+			boolean numeric = true;
+			for(; j < to && isCell(c = data.get(j)); j++) {
+				numeric = numeric && isDigit(c);
+				value   = value * 10 + (c - '0');
+			}
+			if(numeric && j - i <= digits) {
+				put(value, j);
+			} else {
+				for(; i < j && count < cells; i++)
+					put(cellValue(data.get(i)), i + 1);
+			}
+			i = j;
+		}
+	}
+
+	private final void start(final Board sudoku, final int from) {
+		/** Prepara el estado para una nueva lectura */
+		this.target = sudoku;
+		this.count  = 0;
+		this.end    = from;
+	}
+
+	private final void put(final int value, final int next) throws DeadEndException {
+		/** Fija la siguiente celda al valor dado (0 = vacia) */
+		if(value < 0 || value > dims) {
+			throw new IllegalArgumentException(
+					String.format("Valor invalido en la celda %d: %d", count, value));
+		}
+		if(value != 0 && target != null) {
+			target.fix(count, value);
+		}
+		count++;
+		end = next;
+	}
+
+	private static final boolean isDigit(final int c) {
+		return (c >= '0' && c <= '9');
+	}
+
+	private final boolean isCell(final int c) {
+		/** Comprueba si el caracter puede formar parte de una palabra */
+		return (c >= '0' && c <= '9') || c == '.' || (letters && ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')));
+	}
+
+	private static final int cellValue(final int c) {
+		/** Valor de un caracter en formato compacto, -1 si no es valido */
+		if(c == '.')
+			return 0;
+		if(c >= '0' && c <= '9')
+			return c - '0';
+		if(c >= 'A' && c <= 'Z')
+			return c - 'A' + 10;
+		if(c >= 'a' && c <= 'z')
+			return c - 'a' + 10;
+		return -1;
+	}
+}
@@ -0,0 +1,131 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+public final class Pipeline {
+
+	/**
+	 * Secuencia de estrategias que aplica Sudoku.heuristic().
+	 *
+	 * Las estrategias se ordenan por coste (Strategy.getCost), y se
+	 * aplican de la mas barata a la mas cara, grupo a grupo (filas,
+	 * columnas y cuadros). En cuanto una estrategia cambia algo en el
+	 * sudoku se vuelve a empezar por la mas barata, asi que las caras
+	 * solo se usan cuando las baratas ya no dan mas de si. La heuristica
+	 * termina cuando ninguna estrategia cambia nada en ningun grupo, y
+	 * solo revisa los grupos que han cambiado (ver propagate).
+	 *
+	 * Hay varios pipelines predefinidos:
+	 *
+	 * - SUBSETS: solo la logica combinatoria de siempre (CombinedSubsets).
+	 *   Es el pipeline por defecto (DEFAULT).
+	 * - BASIC: singles e intersecciones, sin subconjuntos.
+	 * - FULL: todas las estrategias, de los singles a CombinedSubsets.
+	 */
+
+	public static final Pipeline SUBSETS = new Pipeline(new CombinedSubsets());
+	public static final Pipeline BASIC   = new Pipeline(
+			new NakedSingles(), new HiddenSingles(), new Intersections());
+	public static final Pipeline FULL    = new Pipeline(
+			new NakedSingles(), new HiddenSingles(), new Intersections(),
+			NakedSubsets.PAIRS, HiddenSubsets.PAIRS,
+			NakedSubsets.TRIPLES, HiddenSubsets.TRIPLES,
+			new CombinedSubsets());
+	public static final Pipeline DEFAULT = SUBSETS;
+
+	private final Strategy[] strategies;
+
+	public Pipeline(final Strategy... strategies) {
+		this.strategies = Arrays.copyOf(strategies, strategies.length);
+		/* Arrays.sort es estable: a igual coste, se respeta el orden dado */
+		Arrays.sort(this.strategies, new Comparator<Strategy>() {
+			public int compare(Strategy a, Strategy b) {
+				return Integer.compare(a.getCost(), b.getCost());
+			}
+		});
+	}
+
+	public Strategy[] getStrategies() {
+		/** Devuelve las estrategias, ordenadas por coste */
+		return Arrays.copyOf(strategies, strategies.length);
+	}
+
+	public void apply(final Sudoku sudoku) throws DeadEndException {
+		/** Aplica las estrategias al sudoku hasta que no cambie nada (ver propagate) */
+		try {
+			propagate(sudoku);
+		}
+		catch(DeadEndException exc) {
+			throw DeadEndException.boundary(exc);
+		}
+	}
+
+	final void propagate(final Sudoku sudoku) throws DeadEndException {
+		/** Aplica las estrategias al sudoku hasta que no cambie nada.
+		 *
+		 * Solo se revisan los grupos que han cambiado. El sudoku lleva un
+		 * bitset con los grupos modificados desde la ultima vez (un bit
+		 * por grupo, ver Sudoku.setAt), y aqui cada estrategia tiene su
+		 * propio bitset de grupos pendientes. En cada vuelta:
+		 *
+		 * - Los grupos modificados pasan a estar pendientes para todas
+		 *   las estrategias.
+		 * - Se aplica la estrategia mas barata que tenga algun grupo
+		 *   pendiente, sobre el primero de esos grupos.
+		 * - Si ha cambiado algo, el grupo sigue pendiente para esa
+		 *   estrategia, por si hay mas que sacar de el.
+		 *
+		 * El resultado de una estrategia sobre un grupo solo depende de
+		 * las celdas del grupo, asi que si no ha encontrado nada, no lo
+		 * va a encontrar hasta que el grupo cambie. Cuando no queda
+		 * nada pendiente, el sudoku ha llegado al mismo punto que si se
+		 * pasaran todas las estrategias por todos los grupos.
+		 *
+		 * Como Strategy.propagate, lanza la DeadEndException compartida
+		 * del motor; apply la cambia por una propia.
+		 */
+		final long[] dirty   = sudoku.getDirty();
+		final int words      = dirty.length;
+		final long[] pending = sudoku.getScratch(strategies.length * words);
+		try {
+			while(true) {
+				/* Reparto los grupos modificados */
+				for(int word = 0; word < words; word++) {
+					long changed = dirty[word];
+					if(changed != 0) {
+						for(int index = 0; index < strategies.length; index++)
+							pending[index * words + word] |= changed;
+						dirty[word] = 0;
+					}
+				}
+				/* Y busco la estrategia mas barata con trabajo pendiente */
+				int slot = -1;
+				for(int index = 0; index < strategies.length * words && slot < 0; index++) {
+					if(pending[index] != 0)
+						slot = index;
+				}
+				if(slot < 0)
+					break;
+				int unit = (slot % words) * 64 + Long.numberOfTrailingZeros(pending[slot]);
+				pending[slot] &= pending[slot] - 1;
+				if(strategies[slot / words].propagate(sudoku, unit)) {
+					pending[slot] |= 1L << unit;
+				}
+			}
+		} finally {
+			/* Si el sudoku no tiene solucion, devuelvo lo pendiente al
+			 * sudoku, para que se revise si se deshacen los cambios.
+			 */
+			for(int index = 0; index < strategies.length * words; index++) {
+				dirty[index % words] |= pending[index];
+				pending[index] = 0;
+			}
+		}
+	}
+
+	public String toString() {
+		return Arrays.toString(strategies);
+	}
+}
@@ -0,0 +1,92 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+public final class SearchConfig {
+
+	/**
+	 * Configuracion de la aleatoriedad de la busqueda (Solutions y
+	 * ParallelSolutions).
+	 *
+	 * - tieBreak: como se deshacen los empates entre pivotes con el
+	 *   mismo numero de opciones (ver Sorter.TieBreak).
+	 * - shuffle: si se prueban los valores de cada pivote en orden
+	 *   aleatorio, o de menor a mayor.
+	 * - seed: si se da, cada busqueda empieza con un SplittableRandom
+	 *   con esa semilla, y dos busquedas sobre el mismo sudoku recorren
+	 *   exactamente el mismo arbol. Si no, la semilla se saca de
+	 *   ThreadLocalRandom al empezar cada busqueda.
+	 *
+	 * La configuracion es inmutable y se puede compartir entre hilos.
+	 * Cada busqueda crea su propio generador (newRandom), y en paralelo
+	 * cada rama recibe un split() del de su padre, asi que los hilos no
+	 * comparten ningun estado aleatorio y el reparto de numeros no
+	 * depende de que hilo ejecute cada rama.
+	 *
+	 * Configuraciones predefinidas:
+	 *
+	 * - RANDOM: pivotes y valores al azar, sin semilla. Es lo que hace
+	 *   Solutions por defecto.
+	 * - ORDERED: sin aleatoriedad, siempre el mismo arbol.
+	 */
+
+	public static final SearchConfig RANDOM  = new SearchConfig(Sorter.TieBreak.RANDOM, true, false, 0);
+	public static final SearchConfig ORDERED = new SearchConfig(Sorter.TieBreak.FIRST, false, false, 0);
+
+	private final Sorter.TieBreak tieBreak;
+	private final boolean shuffle;
+	private final boolean seeded;
+	private final long seed;
+
+	private SearchConfig(final Sorter.TieBreak tieBreak, final boolean shuffle, final boolean seeded, final long seed) {
+		this.tieBreak = tieBreak;
+		this.shuffle  = shuffle;
+		this.seeded   = seeded;
+		this.seed     = seed;
+	}
+
+	public static SearchConfig seeded(final long seed) {
+		/** Busqueda aleatoria, pero reproducible */
+		return new SearchConfig(Sorter.TieBreak.RANDOM, true, true, seed);
+	}
+
+	public SearchConfig withTieBreak(final Sorter.TieBreak tieBreak) {
+		return new SearchConfig(tieBreak, shuffle, seeded, seed);
+	}
+
+	public SearchConfig withShuffle(final boolean shuffle) {
+		return new SearchConfig(tieBreak, shuffle, seeded, seed);
+	}
+
+	public SearchConfig withSeed(final long seed) {
+		return new SearchConfig(tieBreak, shuffle, true, seed);
+	}
+
+	public Sorter.TieBreak getTieBreak() {
+		return tieBreak;
+	}
+
+	public boolean isShuffle() {
+		return shuffle;
+	}
+
+	public boolean isRandom() {
+		/** true si la busqueda necesita generar numeros aleatorios */
+		return shuffle || tieBreak == Sorter.TieBreak.RANDOM;
+	}
+
+	public SplittableRandom newRandom() {
+		/** Generador para una nueva busqueda, o null si no hace falta */
+		if(!isRandom()) {
+			return null;
+		}
+		return new SplittableRandom(seeded ? seed : ThreadLocalRandom.current().nextLong());
+	}
+
+	public String toString() {
+		return String.format("SearchConfig(%s, shuffle=%s, seed=%s)",
+				tieBreak, shuffle, seeded ? Long.toString(seed) : "-");
+	}
+}
@@ -0,0 +1,54 @@
+package es.nextiraone.ing.sudoku.core;
+
+public final class SolutionCount {
+
+	/** Bean con el resultado de Solutions.countSolutions */
+
+	private final long solutions;
+	private final long limit;
+	private final long nodes;
+	private final long deadends;
+	private final boolean budgetExceeded;
+
+	public SolutionCount(long solutions, long limit, long nodes, long deadends) {
+		this(solutions, limit, nodes, deadends, false);
+	}
+
+	public SolutionCount(long solutions, long limit, long nodes, long deadends, boolean budgetExceeded) {
+		this.solutions      = solutions;
+		this.limit          = limit;
+		this.nodes          = nodes;
+		this.deadends       = deadends;
+		this.budgetExceeded = budgetExceeded;
+	}
+
+	public final long getSolutions() {
+		/** Numero de soluciones encontradas (como mucho, el limite) */
+		return solutions;
+	}
+
+	public final boolean isLimitReached() {
+		/** true si la cuenta se ha parado en el limite, y puede haber mas */
+		return solutions >= limit;
+	}
+
+	public final long getNodes() {
+		/** Nodos del arbol de busqueda visitados */
+		return nodes;
+	}
+
+	public final long getDeadends() {
+		/** Caminos sin salida encontrados */
+		return deadends;
+	}
+
+	public final boolean isBudgetExceeded() {
+		/** true si la cuenta se ha parado por agotar el presupuesto (ver Solutions.setBudget) */
+		return budgetExceeded;
+	}
+
+	public String toString() {
+		return String.format("%d soluciones, %d nodos, %d caminos sin salida",
+				solutions, nodes, deadends);
+	}
+}
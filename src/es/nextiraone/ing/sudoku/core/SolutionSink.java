@@ -0,0 +1,129 @@
+package es.nextiraone.ing.sudoku.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+public abstract class SolutionSink {
+
+	/**
+	 * Destino de las soluciones encontradas por ParallelSolutions.
+	 *
+	 * Las soluciones llegan desde varios hilos a la vez, asi que tanto
+	 * la cuenta como el cierre del sumidero son atomicos. Cuando se
+	 * alcanza el limite de soluciones, el sumidero se cierra y las
+	 * tareas que quedan pendientes abandonan la busqueda.
+	 *
+	 * Hay tres variantes, segun lo que se quiera hacer con las soluciones:
+	 *
+	 * - count(limit): solo las cuenta, sin copiar ningun sudoku.
+	 * - first(n): guarda una copia de las n primeras que se encuentren.
+	 * - stream(consumer): pasa una copia de cada solucion al consumer,
+	 *   que debe poder invocarse desde varios hilos a la vez.
+	 */
+
+	private final long limit;
+	private final AtomicLong found;
+	private volatile boolean closed;
+
+	protected SolutionSink(final long limit) {
+		this.limit  = limit;
+		this.found  = new AtomicLong();
+		this.closed = (limit <= 0);
+	}
+
+	public final long getFound() {
+		/** Numero de soluciones aceptadas hasta ahora */
+		return found.get();
+	}
+
+	public final boolean isClosed() {
+		/** Devuelve true si ya no hacen falta mas soluciones */
+		return closed;
+	}
+
+	protected boolean isCopyNeeded() {
+		/** Indica si consume() necesita una copia del sudoku resuelto */
+		return true;
+	}
+
+	protected abstract void consume(Sudoku solution);
+
+	final boolean offer(final Sudoku work) {
+		/** Recibe una solucion del motor de busqueda.
+		 *
+		 * "work" es el sudoku de trabajo de la tarea que ha encontrado
+		 * la solucion, y se va a seguir modificando; si el sumidero
+		 * necesita guardarlo, se le pasa una copia.
+		 *
+		 * Devuelve false si el sumidero esta cerrado, para que la tarea
+		 * deje de buscar.
+		 */
+		long current;
+		do {
+			current = found.get();
+			if(current >= limit) {
+				closed = true;
+				return false;
+			}
+		} while(!found.compareAndSet(current, current + 1));
+		consume(isCopyNeeded() ? new Sudoku(work) : null);
+		if(current + 1 >= limit) {
+			closed = true;
+		}
+		return !closed;
+	}
+
+	public static SolutionSink count(final long limit) {
+		/** Sumidero que solo cuenta las soluciones, hasta un limite */
+		return new SolutionSink(limit) {
+			@Override
+			protected boolean isCopyNeeded() {
+				return false;
+			}
+
+			@Override
+			protected void consume(Sudoku solution) { }
+		};
+	}
+
+	public static First first(final int n) {
+		/** Sumidero que guarda las n primeras soluciones */
+		return new First(n);
+	}
+
+	public static SolutionSink stream(final Consumer<Sudoku> consumer) {
+		/** Sumidero que pasa cada solucion al consumer */
+		return new SolutionSink(Long.MAX_VALUE) {
+			@Override
+			protected void consume(Sudoku solution) {
+				consumer.accept(solution);
+			}
+		};
+	}
+
+	public static final class First extends SolutionSink {
+
+		/** Sumidero que guarda las n primeras soluciones encontradas */
+
+		private final List<Sudoku> solutions;
+
+		private First(final int n) {
+			super(n);
+			this.solutions = Collections.synchronizedList(new ArrayList<Sudoku>(n));
+		}
+
+		@Override
+		protected void consume(Sudoku solution) {
+			solutions.add(solution);
+		}
+
+		public List<Sudoku> getSolutions() {
+			/** Devuelve las soluciones guardadas */
+			return solutions;
+		}
+	}
+}
@@ -1,123 +1,326 @@
 package es.nextiraone.ing.sudoku.core;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
 
 
 public class Solutions implements Iterator<Sudoku> {
 
-	/** Iterador sobre las soluciones de un Sudoku. */
-
-    // el sudoku raiz que estamos resolviendo
-    private final Sudoku root;
-    // La rama de sudokus "hijos" que estamos explorando
-    private Solutions branch;
-    // el elemento pivote que hemos elegido para resolver
-    private final int pivot;
-    // los valores de pivote que quedan por probar
-    private final List<Integer> values;
-    // true cuando ya no queden pivote, ni branches.
+	/** Iterador sobre las soluciones de un Sudoku.
+	 *
+	 * Toda la busqueda se hace sobre una unica copia del sudoku raiz,
+	 * con el registro de cambios activado (ver Sudoku.enableTrail).
+	 * Solo se copia el sudoku cuando se encuentra una solucion, para
+	 * devolverla.
+	 *
+	 * La busqueda no es recursiva: la pila de decisiones se guarda en
+	 * arrays de enteros reservados de antemano, un elemento por nivel
+	 * del arbol:
+	 *
+	 * - pivots[level]: la celda pivote elegida en ese nivel.
+	 * - remaining[level]: mascara con los valores del pivote que
+	 *   quedan por probar.
+	 * - marks[level]: la marca de la pila de cambios del sudoku con
+	 *   el estado anterior a fijar el pivote.
+	 *
+	 * Cada nivel fija una celda, asi que nunca hay mas de CELLS niveles,
+	 * y como no hay recursion no hay peligro de StackOverflowError por
+	 * grande que sea el sudoku.
+	 */
+
+    // nodos entre consultas del reloj, con presupuesto de tiempo (potencia de 2)
+    public static final int BUDGET_CHECK = 256;
+
+    // el sudoku sobre el que se hace la busqueda
+    private final Sudoku work;
+    private final Cache cache;
+    // selector de pivotes, sobre las celdas de work
+    private final Sorter sorter;
+    // pila de decisiones, ver arriba
+    private final int[] pivots;
+    private final int[] remaining;
+    private final int[] marks;
+    // numero de niveles en la pila
+    private int depth;
+    // true si work contiene una solucion que aun no se ha devuelto
+    private boolean ready;
+    // false hasta que se empieza la busqueda
+    private boolean started;
+    // true cuando ya no quedan mas soluciones
     private boolean done;
+    // true si se randomiza el orden de los valores de cada pivote
+    private final boolean shuffle;
+    // generador de la busqueda, o null si no se randomiza nada
+    private final SplittableRandom random;
     // cantidad de rutas sin solucion que hemos encontrado
     private int deadends;
+    // cantidad de nodos del arbol (valores de pivote probados)
+    private long nodes;
+    // maxima profundidad de la pila hasta ahora
+    private int maxDepth;
+    // presupuesto de la busqueda (ver setBudget)
+    private long maxNodes;
+    private long deadline;
+    private boolean exceeded;
 
     public Solutions(Sudoku root) {
     	/** Construye el iterador */
-    	this.root     = root;
-    	this.branch   = null;
-    	this.values   = new ArrayList<Integer>();
-    	this.done     = false;
-    	this.deadends = 0;
-    	/* busco celdas que no tengan todos los valores fijos.
+    	this(root, true);
+    }
+
+    public Solutions(Sudoku root, boolean shuffle) {
+    	/** Construye el iterador, indicando si se randomiza la busqueda.
+    	 *
+    	 * Sin randomizar, las soluciones salen siempre en el mismo orden,
+    	 * y la busqueda se ahorra el coste de generar numeros aleatorios.
+    	 */
+    	this(root, shuffle ? SearchConfig.RANDOM : SearchConfig.ORDERED);
+    }
+
+    public Solutions(Sudoku root, Sorter.TieBreak tieBreak) {
+    	/** Construye el iterador, con el desempate de pivotes dado.
+    	 *
+    	 * Solo con TieBreak.RANDOM se randomiza tambien el orden en que
+    	 * se prueban los valores de cada pivote.
     	 */
-    	List<Integer> free = new Sorter(root).free();
-    	this.pivot    = (free.size() == 0) ? -1 : free.get(0);
-    	// Si he encontrado alguna, utilizo sus valores como semillas
-    	if(pivot >= 0) {
-   			for(int val: root.getCache().getOption(root.getAt(pivot))) {
-   				values.add(val+1);
-   			}
-   			/* Randomizo los valores para que las soluciones
-   			 * no salgan siempre iguales.
-   			 */
-   			Collections.shuffle(values);
-   		}
-   	}
+    	this(root, SearchConfig.RANDOM.withTieBreak(tieBreak).withShuffle(tieBreak == Sorter.TieBreak.RANDOM));
+    }
+
+    public Solutions(Sudoku root, SearchConfig config) {
+    	/** Construye el iterador con la configuracion dada (ver SearchConfig) */
+    	this(root, config, config.newRandom());
+    }
+
+    Solutions(Sudoku root, SearchConfig config, SplittableRandom random) {
+    	/** Construye el iterador con un generador ya creado.
+    	 *
+    	 * Lo usa Generator, que le pasa un split() de su propio
+    	 * generador.
+    	 */
+    	this(new Sudoku(root), random, config);
+    }
+
+    private Solutions(Sudoku work, SplittableRandom random, SearchConfig config) {
+    	/** Construye el iterador sobre "work", sin copiarlo (ver inPlace) */
+    	this.shuffle   = config.isShuffle();
+    	this.random    = random;
+    	this.work      = work;
+    	this.cache     = work.getCache();
+    	this.sorter    = new Sorter(work, config.getTieBreak(), random);
+    	this.pivots    = new int[cache.CELLS];
+    	this.remaining = new int[cache.CELLS];
+    	this.marks     = new int[cache.CELLS];
+    	this.depth     = 0;
+    	this.ready     = false;
+    	this.started   = false;
+    	this.done      = false;
+    	this.deadends  = 0;
+    	this.nodes     = 0;
+    	this.maxDepth  = 0;
+    	this.maxNodes  = Long.MAX_VALUE;
+    	this.deadline  = 0;
+    	this.exceeded  = false;
+    	work.enableTrail();
+    }
+
+    static Solutions inPlace(Sudoku work, SearchConfig config, SplittableRandom random) {
+    	/** Construye el iterador directamente sobre "work", sin copiarlo.
+    	 *
+    	 * La busqueda modifica "work", asi que solo vale para un sudoku
+    	 * que nadie mas usa. Lo usa ParallelSolutions en cada rama, que
+    	 * ya trabaja sobre su propia copia.
+    	 */
+    	return new Solutions(work, random, config);
+    }
 
     public int getDeadends() {
         /** Cuenta de ramas sin solucion que se han encontrado hasta ahora */
     	return deadends;
     }
 
-    private final void replaceBranch() {
-    	/** Busca un nuevo branch con soluciones */
-		if(branch != null) {
-			deadends += branch.deadends;
-		}
-		branch = null;
-		for(;branch == null && values.size() > 0;) {
-			Sudoku tmp = new Sudoku(root);
-			try {
-				tmp.fix(pivot, values.remove(0));
-				tmp.heuristic();
-				branch = new Solutions(tmp);
-				if(!branch.hasNext()) {
-					deadends += branch.deadends;
-					branch = null;
-				}
-			}
-			catch(DeadEndException exc) {
-				/* Fijar la celda ha provocado un error,
-				 * esta rama no me vale.
-				 */
-				deadends += 1;
-				branch = null;
-			}
-		}
-		if(branch == null) {
-			/* No hemos podido reemplazar la rama. Marcamos
-			 * el fin de la busqueda.
-			 */
-			done = true;
-		}
+    public long getNodes() {
+        /** Cuenta de nodos del arbol (valores de pivote probados) hasta ahora */
+    	return nodes;
+    }
+
+    public int getMaxDepth() {
+        /** Maxima profundidad del arbol (pivotes apilados a la vez) hasta ahora */
+    	return maxDepth;
+    }
+
+    public void setBudget(final long maxNodes, final long deadline) {
+    	/** Limita la busqueda a "maxNodes" nodos y hasta el instante "deadline".
+    	 *
+    	 * deadline se compara con System.nanoTime(), y 0 es sin limite de
+    	 * tiempo. El reloj solo se consulta cada BUDGET_CHECK nodos. Al
+    	 * agotar el presupuesto la busqueda se para como si no hubiera
+    	 * mas soluciones, e isBudgetExceeded() devuelve true.
+    	 */
+    	this.maxNodes = maxNodes;
+    	this.deadline = deadline;
+    }
+
+    public boolean isBudgetExceeded() {
+        /** true si la busqueda se ha parado por agotar el presupuesto */
+    	return exceeded;
+    }
+
+    private final boolean checkBudget() {
+    	/** Comprueba si queda presupuesto para un nodo mas */
+    	if(nodes >= maxNodes || (deadline != 0 && (nodes & (BUDGET_CHECK - 1)) == 0 && System.nanoTime() - deadline > 0)) {
+    		exceeded = true;
+    		return false;
+    	}
+    	return true;
+    }
+
+    public static SolutionCount countSolutions(final Sudoku root, final long limit) {
+    	/** Cuenta las soluciones de un sudoku, hasta un maximo de "limit".
+    	 *
+    	 * No copia ningun sudoku resuelto, y no randomiza la busqueda,
+    	 * porque el orden en que salgan las soluciones no importa.
+    	 */
+    	return countSolutions(root, limit, Long.MAX_VALUE, 0);
+    }
+
+    public static SolutionCount countSolutions(final Sudoku root, final long limit,
+    		final long maxNodes, final long deadline) {
+    	/** Igual que countSolutions, con presupuesto (ver setBudget).
+    	 *
+    	 * Si se agota el presupuesto, la cuenta es la que se llevaba, y
+    	 * SolutionCount.isBudgetExceeded() devuelve true.
+    	 */
+    	Solutions solutions = new Solutions(root, false);
+    	solutions.setBudget(maxNodes, deadline);
+    	long found = 0;
+    	while(found < limit && solutions.advance()) {
+    		found++;
+    	}
+    	return new SolutionCount(found, limit, solutions.getNodes(), solutions.getDeadends(),
+    			solutions.isBudgetExceeded());
+    }
+
+    public static boolean hasUniqueSolution(final Sudoku root) {
+    	/** Comprueba si el sudoku tiene una y solo una solucion */
+    	return countSolutions(root, 2).getSolutions() == 1;
+    }
+
+    private final boolean open() {
+    	/** Abre un nuevo nivel en la pila con el estado actual de work.
+    	 *
+    	 * Devuelve true si no hay ninguna celda libre, es decir, si
+    	 * work ya es una solucion. En otro caso, elige un pivote y
+    	 * apila sus valores para probarlos.
+    	 */
+    	int pivot = sorter.pivot();
+    	if(pivot < 0) {
+    		return true;
+    	}
+    	pivots[depth]    = pivot;
+    	remaining[depth] = work.getAt(pivot);
+    	marks[depth]     = work.mark();
+    	if(++depth > maxDepth) {
+    		maxDepth = depth;
+    		if(Metrics.ENABLED)
+    			Metrics.MAX_DEPTH.accumulate(depth);
+    	}
+    	return false;
+    }
+
+    private final int pick(final int options, final SplittableRandom random) {
+    	/** Elige al azar uno de los valores de la mascara.
+    	 *
+    	 * Randomizo los valores para que las soluciones
+    	 * no salgan siempre iguales. Si random es null, se
+    	 * elige el primero.
+    	 */
+    	if(random == null) {
+    		return cache.getFirstOption(options);
+    	}
+    	int bits = options;
+    	for(int skip = random.nextInt(cache.getLength(options)); skip > 0; skip--) {
+    		bits = cache.getMaskWithoutFirst(bits);
+    	}
+    	return cache.getFirstOption(bits);
+    }
+
+    private final boolean search() {
+    	/** Avanza la busqueda hasta la siguiente solucion.
+    	 *
+    	 * Devuelve true si ha encontrado una (y la deja en work), o
+    	 * false si se ha agotado el arbol.
+    	 */
+    	if(!started) {
+    		started = true;
+    		if(open())
+    			return true;
+    	}
+    	SplittableRandom random = shuffle ? this.random : null;
+    	while(depth > 0) {
+    		final int level   = depth - 1;
+    		final int options = remaining[level];
+    		if(options == cache.EMPTYMASK) {
+    			/* Se han agotado los valores de este pivote, vuelvo
+    			 * al nivel anterior.
+    			 */
+    			depth--;
+    			continue;
+    		}
+    		final int index = pick(options, random);
+    		remaining[level] = cache.getMaskWithout(options, index);
+    		/* Vuelvo al estado de este nivel antes de probar el valor */
+    		work.undo(marks[level]);
+    		if(!checkBudget())
+    			return false;
+    		nodes += 1;
+    		if(Metrics.ENABLED)
+    			Metrics.NODES.increment();
+    		if(!work.tryFix(pivots[level], index + 1)) {
+    			/* Fijar la celda ha provocado un error,
+    			 * esta rama no me vale.
+    			 */
+    			deadends += 1;
+    			continue;
+    		}
+    		if(open())
+    			return true;
+    	}
+    	return false;
     }
 
 	@Override
 	public boolean hasNext() {
-		if(branch == null && values.size() == 0) {
-			/* no hay branches, este sudoku no tenia pivot,
-			 * o ya se han agotado todas las opciones del pivot.
-			 */
-			return !done;
-		}
-		if(branch == null || !branch.hasNext()) {
-			/* No hemos inicializado el sudoku, o hemos agotado
-			 * la rama. Buscamos otra rama que tenga soluciones.
-			 */
-			replaceBranch();
+		if(!ready && !done) {
+			ready = search();
+			done  = !ready;
 		}
-		return (branch != null);
+		return ready;
+	}
+
+	final boolean advance() {
+		/** Avanza hasta la siguiente solucion sin copiarla.
+		 *
+		 * Si devuelve true, la solucion esta en current() hasta la
+		 * siguiente llamada. Lo usan los motores que solo necesitan
+		 * contar o inspeccionar las soluciones.
+		 */
+		ready = false;
+		return hasNext();
+	}
+
+	final Sudoku current() {
+		/** Devuelve el sudoku de trabajo, con la ultima solucion encontrada */
+		return work;
 	}
 
 	@Override
 	public Sudoku next() {
-		/* Como a esta funcion se le llama despues de hasNext(),
-		 * se debe cumplir que:
-		 * - Si branch == null, es porque este sudoku no tiene celdas libres.
-		 * - en otro caso, branch.hasNext() debe ser true.
-		 */
-		if(branch == null) {
-			/** Si no estamos done, y aun asi no hay branch ni
-			 * values, quiere decir que este sudoku no tiene ningun
-			 * pivote, es decir, ninguna celda libre. Por tanto,
-			 * es su propia solucion.
-			 */
-			done = true;
-			return root;
+		if(!hasNext()) {
+			throw new NoSuchElementException();
 		}
-		return branch.next();
+		ready = false;
+		return new Sudoku(work);
 	}
 
 	@Override
@@ -0,0 +1,36 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public interface SolverMetricsMXBean {
+
+	/**
+	 * Vista JMX de los contadores del solver (ver Metrics).
+	 *
+	 * Cada lectura toma un Snapshot nuevo, asi que los valores de
+	 * distintos atributos pueden no ser del mismo instante.
+	 */
+
+	boolean isEnabled();
+
+	long getFixes();
+
+	long getNarrowed();
+
+	long getDeadends();
+
+	long getSubsets();
+
+	long getNodes();
+
+	long getMaxDepth();
+
+	long getSolves();
+
+	double getMeanLatencyMicros();
+
+	long getP50LatencyMicros();
+
+	long getP99LatencyMicros();
+
+	void reset();
+}
@@ -1,57 +1,140 @@
 package es.nextiraone.ing.sudoku.core;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 
-public final class Sorter implements Comparator<Integer> {
+public final class Sorter {
 
-    /** Comparador para ordenar las celdas del sudoku.
+    /** Selector de pivotes para la busqueda.
      * 
-     * Ordena las celdas en funcion de la cantidad de opciones
-     * que le quedan a cada celda, de menos a mas.
+     * Elige la celda libre con menos opciones (MRV, "minimum remaining
+     * values") en una sola pasada sobre el array de celdas del sudoku,
+     * sin reservar memoria ni ordenar nada. Lo unico configurable es
+     * como se deshacen los empates entre celdas con el mismo numero
+     * de opciones (ver TieBreak).
      */
 
+	public enum TieBreak {
+		/** La primera celda, en orden de offset. Es determinista */
+		FIRST,
+		/** Una al azar, con la misma probabilidad para todas */
+		RANDOM,
+		/** La que tiene mas vecinos libres, que es la que mas restringe
+		 * al resto del sudoku. Entre estas, la primera.
+		 */
+		DEGREE
+	}
+
 	private final Cache cache;
 	private final int[] cells;
+	private final TieBreak tieBreak;
+	// fuente de aleatoriedad para RANDOM (ver SearchConfig)
+	private final SplittableRandom random;
 		
 	public Sorter(final Sudoku root) {
-		this.cache = root.getCache();
-		this.cells = root.getCells();
-	}
-
-	@Override
-	public int compare(Integer o1, Integer o2) {
-		final int len1 = cache.getLength(cells[o1]);
-		final int len2 = cache.getLength(cells[o2]);
-		if(len1 > len2) return  1;
-		if(len1 < len2) return -1;
-		return 0;
-	}
-	
-	public List<Integer> free() {
-		/** Devuelve una lista de indices de celdas cuyo valor no esta fijado
-         * 
-         * La lista primero se randomiza, para asegurar que el orden de las
-         * celdas del mismo tamaño es aleatorio. Luego, se ordena de menos a
-         * mas opciones de celda.
-         */
-		/* La lista esta ordenada por numero de opciones que le
-		 * quedan a la celda, de menor a mayor.
+		/** Selector con desempate aleatorio, sin semilla */
+		this(root, TieBreak.RANDOM, new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+	}
+
+	public Sorter(final Sudoku root, final TieBreak tieBreak, final SplittableRandom random) {
+		/** Selector con el desempate dado.
+		 *
+		 * random solo se usa con TieBreak.RANDOM, y no puede ser null
+		 * en ese caso. Con un generador con semilla, la secuencia de
+		 * pivotes es reproducible (ver SearchConfig).
 		 */
-		List<Integer> free = new ArrayList<Integer>();
-   		for(int i = 0; i < cache.CELLS; i++) {
-   			if(cache.getLength(cells[i]) > 1)
-   				free.add(new Integer(i));
-   		}
-		/* Randomizo los indices, para que el orden de los
-		 * elementos en el array no sea lineal y las soluciones
-		 * a un sudoku no sean siempre las mismas.
+		this.cache    = root.getCache();
+		this.cells    = root.getCells();
+		this.tieBreak = tieBreak;
+		this.random   = random;
+	}
+
+	public TieBreak getTieBreak() {
+		return tieBreak;
+	}
+
+	public int pivot() {
+		/** Devuelve la celda libre con menos opciones, o -1 si no hay ninguna.
+		 *
+		 * Los empates se deshacen segun el TieBreak del selector.
 		 */
-   		Collections.shuffle(free);
-   		Collections.sort(free, this);
-   		return free;
+		switch(tieBreak) {
+		case FIRST:
+			return pivot(null);
+		case DEGREE:
+			return pivotByDegree();
+		default:
+			return pivot(random);
+		}
+	}
+
+	public int pivot(final SplittableRandom random) {
+		/** Celda libre con menos opciones, con desempate aleatorio.
+		 *
+		 * Entre las celdas con el mismo numero de opciones se elige una
+		 * al azar (muestreo de reservorio). Si random es null, no se
+		 * randomiza: se elige siempre la primera.
+		 */
+		int best  = -1;
+		int len   = cache.DIMS + 1;
+		int ties  = 0;
+		for(int i = 0; i < cache.CELLS; i++) {
+			final int current = cache.getLength(cells[i]);
+			if(current <= 1 || current > len)
+				continue;
+			if(current < len) {
+				best = i;
+				len  = current;
+				ties = 1;
+			}
+			else if(random != null && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private final int pivotByDegree() {
+		/** Celda libre con menos opciones y, entre esas, mas vecinos libres.
+		 *
+		 * El grado de una celda solo se calcula cuando empata con la
+		 * mejor hasta el momento.
+		 */
+		int best   = -1;
+		int len    = cache.DIMS + 1;
+		int degree = -1;
+		for(int i = 0; i < cache.CELLS; i++) {
+			final int current = cache.getLength(cells[i]);
+			if(current <= 1 || current > len)
+				continue;
+			if(current < len) {
+				best   = i;
+				len    = current;
+				degree = -1;
+				continue;
+			}
+			if(degree < 0) {
+				degree = degree(best);
+			}
+			final int other = degree(i);
+			if(other > degree) {
+				best   = i;
+				degree = other;
+			}
+		}
+		return best;
+	}
+
+	private final int degree(final int offset) {
+		/** Numero de vecinos de la celda que aun no estan fijados */
+		final int[] peers = cache.getPeers();
+		final int end     = (offset + 1) * cache.PEERS;
+		int count = 0;
+		for(int i = offset * cache.PEERS; i < end; i++) {
+			if(cache.getLength(cells[peers[i]]) > 1)
+				count++;
+		}
+		return count;
 	}
 }
@@ -0,0 +1,43 @@
+package es.nextiraone.ing.sudoku.core;
+
+
+public abstract class Strategy {
+
+	/**
+	 * Tecnica de propagacion que se aplica a un grupo del sudoku.
+	 *
+	 * Los grupos son las filas, columnas y cuadros, numerados como en
+	 * Cache.getUnit. Cada estrategia busca un patron en el grupo y, si
+	 * lo encuentra, descarta valores de las celdas (Sudoku.drop) o fija
+	 * alguna celda (Sudoku.assign, la version de fix del motor).
+	 *
+	 * Las estrategias no guardan estado en la instancia (como mucho,
+	 * un espacio de trabajo por hilo, ver CombinedSubsets), asi que se
+	 * pueden compartir entre sudokus y entre hilos.
+	 *
+	 * Es una clase y no un interfaz para que la parte que usa el motor
+	 * (propagate) sea del paquete: lanza la DeadEndException compartida
+	 * (DeadEndException.signal), que no debe salir del motor. El apply
+	 * publico la cambia por una propia (DeadEndException.boundary).
+	 */
+
+	/** Coste relativo de la estrategia. Pipeline aplica primero las mas baratas */
+	public abstract int getCost();
+
+	public final boolean apply(final Sudoku sudoku, final int unit) throws DeadEndException {
+		/** Aplica la estrategia al grupo dado.
+		 *
+		 * Devuelve true si ha cambiado algo en el sudoku. Lanza
+		 * DeadEndException si descubre que el sudoku no tiene solucion.
+		 */
+		try {
+			return propagate(sudoku, unit);
+		}
+		catch(DeadEndException exc) {
+			throw DeadEndException.boundary(exc);
+		}
+	}
+
+	/** Igual que apply, pero dentro del motor: lanza la excepcion compartida */
+	abstract boolean propagate(Sudoku sudoku, int unit) throws DeadEndException;
+}
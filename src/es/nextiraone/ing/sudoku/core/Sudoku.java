@@ -6,33 +6,179 @@ import java.io.IOException;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
 
 
-public class Sudoku {
+public class Sudoku implements Board {
 
 	/** Objeto Sudoku! */
 
 	private final int[] cells;
 	private final Cache cache;
+	// cola de celdas fijadas pendientes de propagar (ver drop)
+	private final int[] pending;
+	private int head;
+	private int tail;
+	// posiciones donde puede ir cada valor en cada grupo (ver setAt)
+	private final int[] places;
+	// cola de grupos con un valor en una sola posicion (ver propagate)
+	private final int[] hidden;
+	private int hiddenHead;
+	private int hiddenTail;
+	// pila de deshacer: pares (offset, valor anterior) de cada cambio
+	private int[] trail;
+	private int trailTop;
+	// estrategias que aplica heuristic()
+	private Pipeline pipeline;
+	// grupos modificados desde la ultima heuristica, un bit por grupo
+	private final long[] dirty;
+	// espacio de trabajo para Pipeline.propagate
+	private long[] scratch;
 
 	public Sudoku(Cache cache) {
 		/** Nuevo sudoku vacio */
-		this.cache = cache;
-		this.cells = new int[cache.CELLS];
-		for (int i = 0; i < cache.CELLS; i++) {
-			cells[i] = cache.FULLCELL;
-		}
+		this.cache    = cache;
+		this.cells    = new int[cache.CELLS];
+		this.pending  = new int[cache.CELLS];
+		this.places   = new int[cache.UNITS * cache.DIMS];
+		this.hidden   = new int[cache.UNITS * cache.DIMS];
+		this.dirty    = new long[(cache.UNITS + 63) >>> 6];
+		this.pipeline = Pipeline.DEFAULT;
+		reset();
 	}
 
 	protected Sudoku(final Sudoku root) {
 		/** Copia de un sudoku existente */
-		this.cache = root.cache;
-		this.cells = Arrays.copyOf(root.cells, root.cells.length);
+		this.cache    = root.cache;
+		this.cells    = Arrays.copyOf(root.cells, root.cells.length);
+		this.pending  = new int[cache.CELLS];
+		this.places   = Arrays.copyOf(root.places, root.places.length);
+		this.hidden   = new int[cache.UNITS * cache.DIMS];
+		this.dirty    = Arrays.copyOf(root.dirty, root.dirty.length);
+		this.pipeline = root.pipeline;
+	}
+
+	public void reset() {
+		/** Vuelve a dejar todas las celdas sin restringir */
+		Arrays.fill(cells, cache.FULLCELL);
+		/* Con DIMS posiciones por grupo, "todas" es lo mismo que FULLCELL */
+		Arrays.fill(places, cache.FULLCELL);
+		/* y todos los grupos quedan pendientes de revisar */
+		for(int unit = 0; unit < cache.UNITS; unit++) {
+			dirty[unit >>> 6] |= 1L << unit;
+		}
+		trailTop = 0;
+	}
+
+	protected final void enableTrail() {
+		/** Activa el registro de cambios para poder deshacerlos.
+		 *
+		 * Con el registro activado, cada vez que se modifica una celda
+		 * se apunta en la pila "trail" su offset y su valor anterior,
+		 * de manera que undo() puede volver a un estado anterior
+		 * restaurando solo las celdas que han cambiado. Es lo que usa
+		 * Solutions para explorar todo el arbol de busqueda sobre un
+		 * unico sudoku, en lugar de copiar el sudoku en cada rama.
+		 *
+		 * Como cada cambio quita al menos un valor de una celda, a
+		 * partir de cualquier estado no puede haber mas de CELLS * DIMS
+		 * cambios antes de deshacer, asi que la pila no se desborda.
+		 */
+		if(trail == null) {
+			trail    = new int[2 * cache.CELLS * cache.DIMS];
+			trailTop = 0;
+		}
+	}
+
+	protected final int mark() {
+		/** Devuelve la posicion actual de la pila de cambios */
+		return trailTop;
+	}
+
+	protected final void undo(final int mark) {
+		/** Deshace todos los cambios hechos desde la marca dada */
+		while(trailTop > mark) {
+			int old    = trail[--trailTop];
+			int offset = trail[--trailTop];
+			setDirty(offset);
+			/* Devuelvo las posiciones de los valores recuperados */
+			int added  = cache.getCellWithout(old, cells[offset]);
+			for(int bits = added; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+				int value = cache.getFirstOption(bits);
+				for(int group = 0; group < 3; group++) {
+					int slot = cache.getCellUnit(offset, group) * cache.DIMS + value;
+					places[slot] = cache.getCellCombined(places[slot],
+							cache.getMask(cache.getCellIndex(offset, group)));
+				}
+			}
+			cells[offset] = old;
+		}
+	}
+
+	private final void setAt(final int offset, final int update) throws DeadEndException {
+		/** Modifica una celda, registrando el cambio si hace falta.
+		 *
+		 * Ademas de la celda, mantiene la tabla "places": para cada
+		 * grupo (fila, columna o cuadro, ver Cache.getUnit) y cada valor,
+		 * la mascara de posiciones del grupo donde todavia puede ir el
+		 * valor. Asi, al quitar un valor de una celda se sabe en O(1) si
+		 * ese valor se ha quedado con una sola posicion en alguno de sus
+		 * grupos ("hidden single"). En ese caso el grupo se apunta en la
+		 * cola "hidden", y propagate() fija la celda.
+		 *
+		 * Si el valor se queda sin ninguna posicion, el sudoku no tiene
+		 * solucion. La excepcion se lanza al final, con la tabla ya
+		 * actualizada, para que undo() pueda deshacer el cambio.
+		 */
+		if(trail != null) {
+			trail[trailTop++] = offset;
+			trail[trailTop++] = cells[offset];
+		}
+		if(Metrics.ENABLED)
+			Metrics.NARROWED.increment();
+		setDirty(offset);
+		int removed = cache.getCellWithout(cells[offset], update);
+		boolean deadEnd = false;
+		for(int bits = removed; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int value = cache.getFirstOption(bits);
+			for(int group = 0; group < 3; group++) {
+				int slot  = cache.getCellUnit(offset, group) * cache.DIMS + value;
+				int place = cache.getMaskWithout(places[slot], cache.getCellIndex(offset, group));
+				places[slot] = place;
+				if(cache.getLength(place) == 1) {
+					hidden[hiddenTail++] = slot;
+				} else if(place == cache.EMPTYMASK) {
+					deadEnd = true;
+				}
+			}
+		}
+		cells[offset] = update;
+		if(deadEnd) {
+			throw DeadEndException.signal();
+		}
+	}
+
+	private final void setDirty(final int offset) {
+		/** Marca como modificados los grupos (fila, columna, cuadro) de la celda */
+		for(int group = 0; group < 3; group++) {
+			int unit = cache.getCellUnit(offset, group);
+			dirty[unit >>> 6] |= 1L << unit;
+		}
+	}
+
+	final long[] getDirty() {
+		/** Devuelve el bitset de grupos modificados (ver Pipeline.propagate) */
+		return dirty;
+	}
+
+	final long[] getScratch(final int length) {
+		/** Devuelve un array de trabajo de al menos "length" posiciones */
+		if(scratch == null || scratch.length < length) {
+			scratch = new long[length];
+		}
+		return scratch;
 	}
 
 	protected int[] getCells() {
@@ -45,6 +191,69 @@ public class Sudoku {
 		return cells[offset];
 	}
 
+	@Override
+	public int getSide() {
+		return cache.SIDE;
+	}
+
+	@Override
+	public int getValue(final int offset) {
+		/** Valor de la celda, o 0 si todavia no esta fijada */
+		int cell = cells[offset];
+		return (cache.getLength(cell) == 1) ? cache.getValue(cell) : 0;
+	}
+
+	@Override
+	public Iterator<Sudoku> solutions() {
+		return new Solutions(this);
+	}
+
+	@Override
+	public Sudoku solve() {
+		/** Primera solucion, con el motor especializado si es un 9x9 (ver Bitboard9) */
+		final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		Sudoku result;
+		if(cache.SIDE == Bitboard9.SIDE) {
+			result = Bitboard9.solve(this);
+		} else {
+			Solutions solutions = new Solutions(this, false);
+			result = solutions.advance() ? new Sudoku(solutions.current()) : null;
+		}
+		if(Metrics.ENABLED)
+			Metrics.recordLatency(System.nanoTime() - start);
+		return result;
+	}
+
+	public SolutionCount countSolutions(final long limit) {
+		/** Cuenta las soluciones hasta "limit", eligiendo motor segun el lado */
+		final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		SolutionCount result = (cache.SIDE == Bitboard9.SIDE)
+				? Bitboard9.countSolutions(this, limit)
+				: Solutions.countSolutions(this, limit);
+		if(Metrics.ENABLED)
+			Metrics.recordLatency(System.nanoTime() - start);
+		return result;
+	}
+
+	final void setSolution(final int[] values) {
+		/** Carga un sudoku resuelto, con un valor (de 1 a DIMS) por celda.
+		 *
+		 * Lo usan los motores que no trabajan sobre Sudoku (ver
+		 * Bitboard9), para devolver la solucion sin pasar por fix().
+		 * Reconstruye "places" a partir de los valores.
+		 */
+		Arrays.fill(places, cache.EMPTYMASK);
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			final int value = values[offset] - 1;
+			cells[offset] = cache.getMask(value);
+			for(int group = 0; group < 3; group++) {
+				int slot = cache.getCellUnit(offset, group) * cache.DIMS + value;
+				places[slot] = cache.getCellCombined(places[slot], cache.getMask(cache.getCellIndex(offset, group)));
+			}
+		}
+		trailTop = 0;
+	}
+
 	public Cache getCache() {
 		return cache;
 	}
@@ -54,14 +263,14 @@ public class Sudoku {
 		return new Cell(this, cache.getRow(row)[col]);
 	}
 
-	private final boolean drop(int[] offsets, int used, int mask, Queue<Integer> fixedList) throws DeadEndException {
+	private final boolean dropGroup(int[] offsets, int used, int mask) throws DeadEndException {
 		/**
 		 * Elimina un valor de la lista de valores posibles de un conjunto
 		 * de celdas.
 		 * 
 		 * Si como resultado de la eliminacion alguna celda del conjunto
 		 * queda fijada a un valor unico, agrega el offset de esa celda a
-		 * la lista fixedList.
+		 * la cola de pendientes (pending).
 		 * 
 		 * - offsets es una lista de coordenadas, de longitud <= this.getSize().
 		 * - used es una bitmask, indicando las posiciones a procesar dentro del
@@ -69,26 +278,54 @@ public class Sudoku {
 		 * - mask es una bitmask con las opciones a quitar de las celdas.
 		 */
 		boolean changed = false;
-		for(int index: cache.getOption(used)) {
-			int offset = offsets[index];
+		for(int bits = used; bits != cache.EMPTYMASK; bits = cache.getMaskWithoutFirst(bits)) {
+			int offset = offsets[cache.getFirstOption(bits)];
 			int cell   = cells[offset];
 			int update = cache.getCellWithout(cell, mask);
 			if(update != cell) {
 				if (update == cache.EMPTYMASK) {
 					/* Si llegamos a una solucion incompatible */
-					throw new DeadEndException();
+					throw DeadEndException.signal();
 				}
-				cells[offset] = update;
+				setAt(offset, update);
 				changed = true;
 				if (cache.getLength(update) == 1) {
-					fixedList.add(offset);
+					pending[tail++] = offset;
 				}
 			}
 		}
 		return changed;
 	}
 
-	private final boolean drop(int[] offsets, int used, int mask) throws DeadEndException {
+	private final void dropPeers(final int offset, final int mask) throws DeadEndException {
+		/**
+		 * Quita el valor de una celda fijada de todos sus vecinos.
+		 *
+		 * Es el bucle mas interno del solver: recorre la lista plana de
+		 * vecinos de la celda (ver Cache.getPeers), y la mayoria de las
+		 * veces solo lee y compara, porque el vecino ya no tenia el
+		 * valor. Solo cuando hay que cambiar la celda se sale del camino
+		 * rapido para llamar a setAt.
+		 */
+		final int[] peers = cache.getPeers();
+		final int end     = (offset + 1) * cache.PEERS;
+		for(int i = offset * cache.PEERS; i < end; i++) {
+			int peer = peers[i];
+			int cell = cells[peer];
+			if((cell & mask) != 0) {
+				int update = cache.getCellWithout(cell, mask);
+				if (update == cache.EMPTYMASK) {
+					throw DeadEndException.signal();
+				}
+				setAt(peer, update);
+				if (cache.getLength(update) == 1) {
+					pending[tail++] = peer;
+				}
+			}
+		}
+	}
+
+	final boolean drop(int[] offsets, int used, int mask) throws DeadEndException {
 		/**
 		 * Ejecuta la propagacion de cambios en el sudoku
 		 * 
@@ -115,201 +352,144 @@ public class Sudoku {
 		 * Pero como he comprobado que pasar de recursivo a iterativo
 		 * no me supone un cambio importante de rendimiento, prefiero
 		 * dejarlo asi por si las moscas.
+		 *
+		 * La cola de celdas pendientes es un array de enteros del propio
+		 * sudoku, para no reservar memoria en cada llamada. Una celda
+		 * solo puede pasar de tener varias opciones a tener una sola
+		 * una vez, asi que en una misma propagacion no se encolan mas
+		 * de CELLS offsets y el array nunca se desborda. Si la propagacion
+		 * acaba en DeadEndException la cola queda a medias, pero da igual
+		 * porque se reinicia en la siguiente llamada.
 		 */
-		Queue<Integer> fixedList = new ArrayDeque<Integer>();
-		boolean changed = drop(offsets, used, mask, fixedList);
-		while(!fixedList.isEmpty()) {
-			int offset = fixedList.poll();
-			int cell   = cells[offset];
-			for(OffsetGroup set: cache.getNeighbor(offset)) {
-				drop(set.getOffsets(), set.getMask(), cell, fixedList);
-			}
-		}
+		start();
+		boolean changed = dropGroup(offsets, used, mask);
+		propagate();
 		return changed;
 	}
 
-	private final boolean checkCombination(int[] coords, int used, int check) throws DeadEndException {
-		/** Realiza una comprobacion estadistica sobre las celdas indicadas por "check".
-		 * 
-		 * Cuando en un sudoku hay un grupo de "n" celdas relacionadas
-		 * (de la misma fila, columna o cuadro) que en combinacion no pueden
-		 * tomar mas de "n" valores, eso implica que esos valores no pueden
-		 * estar en ninguna otra celda de la misma relacion (fila, columna
-		 * o cuadro).
-		 * 
-		 * Por ejemplo, si tienes dos celdas en una fila con los posibles valores
-		 * "2" y "5", no puedes saber en cual celda esta el "2" y en cual esta
-		 * el "5". Lo que si que sabes es que ni el "2" ni el "5" puden estar en 
-		 * ninguna otra celda de la misma fila, porque el sudoku no tendria solucion. 
-		 * 
-		 * Esta funcion lo que hace es valerse de eso. Comprueba los valores que
-		 * tienen las celdas identificadas por "check" (es una mascara que indica
-		 * que valores de "coords" estamos usando). Si entre todas combinadas no
-		 * pueden tomar mas de Cache.getLength(check) valores, entonces hemos
-		 * dado con una combinacion valida.
-		 * 
-		 * Si la combinacion es valida, aprovecha y elimina esos valores del resto
-		 * de celdas del grupo. Los indices de las celdas que no esten fijas en el
-		 * grupo deben indicarse mediante la mascara "used".
-		 * 
-		 * - offsets es una lista de coordenadas, de longitud <= this.getSize().
-		 * - used es una bitmask, indicando las posiciones dentro del array de
-		 *   offsets que contienen celdas no fijadas aun.
-		 * - check es una bitmask, indicando las posiciones dentro del array de
-		 *   offsets que estamos procesando en esta iteracion.
-		 *
-		 * Devuelve "true" solo si ha encontrado una combinacion valida que ademas
-		 * haya tenido impacto en el sudoku (haya eliminado algun valor del
-		 * resto de celdas del grupo). 
-		 */
-		int comb = cache.EMPTYMASK;
-		for(int index: cache.getOption(check)) {
-			comb = cache.getCellCombined(comb, cells[coords[index]]);
-		}
-		if(cache.getLength(comb) <= cache.getLength(check)) {
-			return drop(coords, cache.getCellWithout(used,  check), comb);
-		}
-		return false;
+	private final void start() {
+		/** Vacia las colas antes de una nueva propagacion */
+		head       = 0;
+		tail       = 0;
+		hiddenHead = 0;
+		hiddenTail = 0;
 	}
 
-	private final boolean combineLogic(int[] coords, int used) throws DeadEndException {
-		/**
-		 * Fija valores por combinacion.
-		 * 
-		 * Comprueba las combinaciones de celdas interesantes dentro
-		 * del grupo (fila, columna o cuadro) dados, utilizando la
-		 * funcion checkCombination.
-		 * 
-		 * - offsets es una lista de coordenadas, de longitud <= this.getSize().
-		 * - used es una bitmask, indicando las posiciones dentro del array de
-		 *   offsets que contienen celdas no fijadas aun.
-		 * - check es una bitmask, indicando las posiciones dentro del array de
-		 *   offsets que estamos procesando en esta iteracion.
-		 */
-		/* Al igual que drop, esta funcion ha pasado de ser
-		 * recursiva a iterativa.
+	private final void propagate() throws DeadEndException {
+		/** Propaga los cambios pendientes hasta vaciar las colas.
+		 *
+		 * - Cada celda de "pending" se ha quedado con un solo valor, que
+		 *   se quita del resto de su fila, columna y cuadro.
+		 * - Cada entrada de "hidden" es un grupo en el que un valor solo
+		 *   puede ir en una posicion, asi que se fija ahi. Si la celda ya
+		 *   estaba fijada (el caso mas normal: se acaba de fijar ese valor
+		 *   y se ha quitado del resto del grupo), no hay nada que hacer.
+		 *
+		 * Igual que con pending, cada grupo y valor solo puede pasar a
+		 * tener una posicion una vez en cada propagacion, asi que la cola
+		 * hidden no necesita mas de UNITS * DIMS entradas.
 		 */
-		if(cache.getLength(used) <= 2)
-			return false;
-		Queue<Integer> checkList = new ArrayDeque<Integer>();
-		checkList.add(used);
-		while(!checkList.isEmpty()) {
-			int check = checkList.poll();
-			/* La combinacion dada por "check" siempre se procesa antes
-			 * de meterla en el checkList (excepto en el caso inicial,
-			 * ya que check == used y no tiene sentido probar nada porque
-			 * no hay celdas (used - check) en las que quitar valores).
-			 * 
-			 * Asi que lo que nos queda es procesar los sub-grupos de "check".
-			 * Sea "n" = Cache.getLength(check): Me interesan en principio
-			 * los grupos de "n"-1 celdas (o menos) donde cada celda no tenga
-			 * mas de "n"-1 valores. El resto de celdas no me interesan,
-			 * las puedo eliminar.
-			 * 
-			 * Pero claro, el tema es que si quito, por ejemplo, dos celdas,
-			 * ya no me interesan tampoco las celdas que pueden tomar n-1
-			 * valores; solo me interesarian las que pueden tomar un maximo
-			 * de n-2, asi que tendria que filtrar otra vez...
-			 * 
-			 * Lo que hago abajo es iterativamente ir reduciendo el
-			 * conjunto de celdas interesantes. Empiezo por las que tienen
-			 * mas de "n"-1 valores, pero si he conseguido reducir alguna,
-			 * entonces vuelvo a intentarlo con la nueva longitud del grupo,
-			 * a ver si me quito alguna otra.
-			 */
-			int oldcheck = check;
-			int newlen = cache.getLength(check) - 1;
-			int oldlen = 0;
-			do {
-				for(int index: cache.getOption(check)) {
-					// Si la celda tiene mas de <newlen> opciones:
-					if (cache.getLength(cells[coords[index]]) > newlen) {
-						// entonces, la saco de la lista.
-						check = cache.getMaskWithout(check, index);
-					}
-				}
-				// y actualizo newlen
-				oldlen = newlen;
-				newlen = cache.getLength(check);
-			}
-			while (oldlen != newlen && newlen > 1);
-			if (oldcheck != check) {
-				/* Si he reducido la lista de opciones, la tengo que procesar
-				 * para ver si la nueva lista reducida da algun resultado
-				 * positivo
-				 */
-				if(checkCombination(coords, used, check))
-					return true;
-			}
-			/* Si llego aqui, es porque "check" no nos ha dado una
-			 * combinacion valida o que tenga efecto sobre el sudoku, pero
-			 * al menos la hemos limpiado y dejado solo celdas que
-			 * puedan formar subgrupos interesantes.
-			 * 
-			 * Asi que vamos a ir agregando esos subgrupos posiblemente
-			 * interesantes a la lista de procesamiento.
-			 */
-			if(newlen > 2) {
-				for(int index: cache.getOption(check)) {
-					/* Pre-proceso el sugbrupo antes de meterlo en en la lista */
-					int newcheck = cache.getMaskWithout(check, index);
-					if(checkCombination(coords, used, newcheck))
-						return true;
-					/* Y si no hay exito, lo enlisto para que se siga buscando */
-					checkList.add(newcheck);
+		while(true) {
+			if(head != tail) {
+				int offset = pending[head++];
+				dropPeers(offset, cells[offset]);
+			} else if(hiddenHead != hiddenTail) {
+				int slot   = hidden[hiddenHead++];
+				int place  = places[slot];
+				int offset = cache.getUnit(slot / cache.DIMS)[cache.getFirstOption(place)];
+				int mask   = cache.getMask(slot % cache.DIMS);
+				if(cells[offset] != mask) {
+					setAt(offset, mask);
+					pending[tail++] = offset;
 				}
+			} else {
+				break;
 			}
 		}
-		return false;
 	}
 
-	private final boolean heuristicOnGroup(int[][] group) throws DeadEndException {
-		/** Analiza estadisticamente un grupo de filas, columnas o cuadros */
-		for (int[] coords : group) {
-			/* Me quedo con la celdas no fijadas */
-			int used = cache.EMPTYMASK;
-			for (int idx = 0; idx < coords.length; idx++) {
-				if (cache.getLength(cells[coords[idx]]) > 1)
-					used = cache.getCellCombined(used, cache.getMask(idx));
-			}
-			/* Y las analizo por combinatoria */
-			if (combineLogic(coords, used))
-				return true;
+	protected final int getUnfixed(final int[] offsets) {
+		/** Devuelve la mascara de posiciones de offsets con celdas no fijadas */
+		int used = cache.EMPTYMASK;
+		for (int idx = 0; idx < offsets.length; idx++) {
+			if (cache.getLength(cells[offsets[idx]]) > 1)
+				used = cache.getCellCombined(used, cache.getMask(idx));
 		}
-		return false;
+		return used;
+	}
+
+	public Pipeline getPipeline() {
+		return pipeline;
+	}
+
+	public void setPipeline(final Pipeline pipeline) {
+		/** Cambia las estrategias que aplica heuristic() (ver Pipeline) */
+		this.pipeline = pipeline;
 	}
 
 	public void heuristic() throws DeadEndException {
-		/** Analiza estadisticamente el sudoku */
-		int[][][] groups = { cache.getRows(), cache.getCols(), cache.getSquares() };
-		boolean done = false;
-		do {
-			done = true;
-			for (int[][] group : groups) {
-				if (heuristicOnGroup(group)) {
-					done = false;
-					break;
-				}
-			}
-		} while (!done);
+		/** Analiza estadisticamente el sudoku.
+		 *
+		 * Aplica las estrategias del Pipeline configurado hasta que
+		 * ninguna consigue descartar ningun valor mas. Por defecto, el
+		 * pipeline solo tiene la logica combinatoria de siempre
+		 * (CombinedSubsets).
+		 */
+		pipeline.apply(this);
+	}
+
+	public void fix(int offset, int value) throws DeadEndException {
+		/** Fija una celda a un valor dado, y propaga cambios.
+		 *
+		 * A diferencia de fix(Fix), no aplica la heuristica: solo
+		 * elimina el valor de las celdas vecinas, en cascada.
+		 */
+		try {
+			assign(offset, value);
+		}
+		catch(DeadEndException exc) {
+			throw DeadEndException.boundary(exc);
+		}
 	}
 
-	protected void fix(int offset, int value) throws DeadEndException {
-		/** Fija una celda a un valor dado, y propaga cambios */
+	final boolean tryFix(final int offset, final int value) {
+		/** Fija la celda y aplica la heuristica, sin excepciones.
+		 *
+		 * Es lo que hacen los motores de busqueda en cada nodo.
+		 * Devuelve false si el sudoku se queda sin solucion; en ese
+		 * caso la excepcion compartida del motor no sale de aqui, asi
+		 * que el camino sin salida no reserva memoria.
+		 */
+		try {
+			assign(offset, value);
+			pipeline.propagate(this);
+			return true;
+		}
+		catch(DeadEndException exc) {
+			return false;
+		}
+	}
+
+	final void assign(final int offset, final int value) throws DeadEndException {
+		/** Igual que fix, pero dentro del motor (ver DeadEndException) */
+		if(Metrics.ENABLED)
+			Metrics.FIXES.increment();
 		int mask = cache.getMask(value - 1);
 		if (!cache.doesCellContain(cells[offset], mask)) {
 			/*
 			 * No se puede fijar este valor en la celda porque no esta dentro de
 			 * las opciones
 			 */
-			throw new DeadEndException();
+			throw DeadEndException.signal();
 		}
 		/* fijamos la celda */
-		cells[offset] = mask;
-		/* y propagamos al resto de celdas */
-		for (OffsetGroup set: cache.getNeighbor(offset)) {
-			drop(set.getOffsets(), set.getMask(), mask);
+		start();
+		if (cells[offset] != mask) {
+			setAt(offset, mask);
 		}
+		/* y propagamos al resto de celdas */
+		pending[tail++] = offset;
+		propagate();
 	}
 
 	public void fix(Fix f) throws DeadEndException {
@@ -404,27 +584,11 @@ public class Sudoku {
 		 * por uno o varios digitos en ASCII. Las celdas pueden separarse unas
 		 * de otras utilizando cualquier caracter que no sea un digito ascii:
 		 * espacio,s comas, guiones, saltos de linea, etc.
+		 *
+		 * Tambien se admite el formato compacto, con una celda por caracter
+		 * y '.' o '0' para las celdas vacias (ver Parser).
 		 */
-		List<Integer> values = new ArrayList<Integer>();
-		List<Fix> fixes = new ArrayList<Fix>();
-		for (String value : data.split("[^0-9]+")) {
-			if (value.length() > 0)
-				values.add(new Integer(value));
-		}
-		/*
-		 * Aqui, para ser completamente independiente del orden, deberia
-		 * convertir el numero de objeto en coordenadas (fila, columna) y luego
-		 * llamar a Cache.getOffset()... pero aprovechando que sabemos que el
-		 * orden es precisamente por fila y columna, me salto ese paso.
-		 */
-		for (int i = 0; i < Math.min(cache.CELLS, values.size()); i++) {
-			int value = values.get(i);
-			if (value != 0)
-				fixes.add(new Fix(cache, i, value));
-		}
-		Sudoku sudoku = new Sudoku(cache);
-		sudoku.fix(fixes);
-		return sudoku;
+		return new Parser(cache).parse(data);
 	}
 
 	private static final String readFile(String path) throws IOException {
@@ -455,7 +619,7 @@ public class Sudoku {
 					.println("Uso: sudoku <fichero de sudoku> [numero de resultados]\n");
 			System.exit(0);
 		}
-		Cache  cache  = new Cache(3);
+		Cache  cache  = Cache.forSide(3);
 		Sudoku sudoku = null;
 		try {
 			sudoku = Sudoku.fromString(cache, readFile(args[1]));
@@ -481,5 +645,7 @@ public class Sudoku {
 				"%d soluciones y %d caminos sin salida encontrados en %d ms",
 				found, sol.getDeadends(), elapsedTime);
 		System.out.println("");
+		if (Metrics.ENABLED)
+			System.out.println(Metrics.snapshot());
 	}
 }
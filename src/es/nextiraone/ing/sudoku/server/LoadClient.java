@@ -0,0 +1,191 @@
+package es.nextiraone.ing.sudoku.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public final class LoadClient {
+
+	/**
+	 * Cliente de carga para SolverServer.
+	 *
+	 * Lanza "threads" hilos que mandan entre todos "requests" peticiones
+	 * al endpoint, cada una con un lote de "batch" sudokus sacados por
+	 * turno de la lista. Apunta la latencia de cada peticion (desde que
+	 * se abre la conexion hasta que se lee la respuesta completa), y al
+	 * final las ordena para sacar los percentiles.
+	 *
+	 * Las peticiones que fallan (error de red o estado distinto de 200)
+	 * se cuentan aparte, y no entran en los percentiles.
+	 */
+
+	private LoadClient() {
+	}
+
+	public static Report run(final URL url, final List<String> puzzles, final int threads,
+			final int requests, final int batch) throws InterruptedException {
+		/** Lanza la carga y espera a que terminen todas las peticiones */
+		final long[] latencies = new long[requests];
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger done = new AtomicInteger();
+		final AtomicLong errors  = new AtomicLong();
+		Thread[] workers = new Thread[threads];
+		long start = System.nanoTime();
+		for(int i = 0; i < threads; i++) {
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					for(int index = next.getAndIncrement(); index < requests; index = next.getAndIncrement()) {
+						String body = makeBatch(puzzles, index * batch, batch);
+						long begin = System.nanoTime();
+						try {
+							post(url, body);
+							latencies[done.getAndIncrement()] = System.nanoTime() - begin;
+						} catch(IOException exc) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			}, "sudoku-load-" + i);
+			workers[i].start();
+		}
+		for(Thread worker: workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		return new Report(Arrays.copyOf(latencies, done.get()), errors.get(), (long) batch * done.get(), elapsed);
+	}
+
+	private static String makeBatch(final List<String> puzzles, final int from, final int batch) {
+		StringBuilder body = new StringBuilder();
+		for(int i = 0; i < batch; i++) {
+			body.append(puzzles.get((from + i) % puzzles.size())).append('\n');
+		}
+		return body.toString();
+	}
+
+	public static String post(final URL url, final String body) throws IOException {
+		/** Manda una peticion POST y devuelve la respuesta; IOException si no es un 200 */
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(bytes.length);
+			connection.setRequestProperty("Content-Type", "text/plain; charset=US-ASCII");
+			OutputStream output = connection.getOutputStream();
+			output.write(bytes);
+			output.close();
+			int status = connection.getResponseCode();
+			if(status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Estado HTTP " + status);
+			}
+			InputStream input = connection.getInputStream();
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			for(int read = input.read(chunk); read >= 0; read = input.read(chunk)) {
+				buffer.write(chunk, 0, read);
+			}
+			input.close();
+			return new String(buffer.toByteArray(), StandardCharsets.US_ASCII);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	public static final class Report {
+
+		/** Resultado de una carga: latencias ordenadas, errores y rendimiento */
+
+		private final long[] latencies;
+		private final long errors;
+		private final long puzzles;
+		private final long elapsed;
+
+		Report(final long[] latencies, final long errors, final long puzzles, final long elapsed) {
+			Arrays.sort(latencies);
+			this.latencies = latencies;
+			this.errors    = errors;
+			this.puzzles   = puzzles;
+			this.elapsed   = elapsed;
+		}
+
+		public int getRequests() {
+			/** Peticiones completadas con exito */
+			return latencies.length;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public long getPercentile(final double percentile) {
+			/** Latencia en nanosegundos del percentil dado (0 a 100), o 0 si no hay peticiones */
+			if(latencies.length == 0)
+				return 0;
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+		}
+
+		public double getThroughput() {
+			/** Sudokus por segundo, contando solo las peticiones con exito */
+			return (elapsed == 0) ? 0 : puzzles * 1e9 / elapsed;
+		}
+
+		public String toString() {
+			return String.format("requests=%d errors=%d p50=%.3fms p99=%.3fms max=%.3fms %.0f sudokus/s",
+					getRequests(), errors, getPercentile(50) / 1e6, getPercentile(99) / 1e6,
+					getPercentile(100) / 1e6, getThroughput());
+		}
+	}
+
+	public static void main(String[] args) {
+		/**
+		 * Lanza carga contra un SolverServer.
+		 *
+		 * Uso: load <url> <fichero de sudokus> [hilos] [peticiones] [lote]
+		 *
+		 * Por ejemplo: load http://127.0.0.1:8080/solve sudokus.txt 8 10000 16
+		 */
+		if (args.length < 2) {
+			System.err.println("Uso: load <url> <fichero de sudokus> [hilos] [peticiones] [lote]\n");
+			System.exit(0);
+		}
+		int threads  = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+		int requests = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+		int batch    = (args.length > 4) ? Integer.parseInt(args[4]) : 1;
+		List<String> puzzles = new ArrayList<String>();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(args[1]));
+			try {
+				for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if(!line.trim().isEmpty() && !line.startsWith("#"))
+						puzzles.add(line.trim());
+				}
+			} finally {
+				reader.close();
+			}
+			if(puzzles.isEmpty()) {
+				System.err.format("El fichero %s no tiene sudokus\n", args[1]);
+				System.exit(-1);
+			}
+			System.out.println(run(new URL(args[0]), puzzles, threads, requests, batch));
+		} catch (IOException exc) {
+			System.err.format("Error leyendo el fichero %s: %s\n", args[1], exc.getMessage());
+			System.exit(-1);
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,519 @@
+package es.nextiraone.ing.sudoku.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import es.nextiraone.ing.sudoku.core.Bitboard9;
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Generator;
+import es.nextiraone.ing.sudoku.core.LongCache;
+import es.nextiraone.ing.sudoku.core.Parser;
+import es.nextiraone.ing.sudoku.core.SearchConfig;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public final class SolverServer {
+
+	/**
+	 * Servicio HTTP minimo sobre el solver, sin dependencias externas
+	 * (com.sun.net.httpserver del JDK).
+	 *
+	 * Endpoints:
+	 *
+	 * - POST /solve: una linea de respuesta por sudoku, con la primera
+	 *   solucion en formato compacto, o "-" si no tiene solucion.
+	 * - POST /count?limit=N: numero de soluciones, hasta N (por defecto
+	 *   DEFAULT_LIMIT). Si se llega al limite, lleva un "+" detras.
+	 * - POST /validate: "unique", "multiple" o "none".
+	 * - GET o POST /generate?n=N&clues=C&difficulty=D&seed=S: N sudokus
+	 *   nuevos (ver Generator), uno por linea, o "-" si alguno no llega
+	 *   a la dificultad pedida.
+	 *
+	 * Los endpoints de resolucion aceptan lotes: el cuerpo de la
+	 * peticion lleva un sudoku por linea, en cualquiera de los formatos
+	 * de Parser (compacto, o numeros separados por espacios). Las lineas
+	 * vacias y las que empiezan por '#' se ignoran. Una linea que no se
+	 * puede leer (celdas de menos, valores fuera de rango...) se responde
+	 * con "error: ...", sin afectar al resto.
+	 *
+	 * Todos admiten el parametro side (lado del sudoku, por defecto 3),
+	 * y un presupuesto por peticion, para todo el lote:
+	 *
+	 * - nodes: nodos de busqueda (ver Solutions.setBudget).
+	 * - ms: milisegundos desde que llega la peticion.
+	 *
+	 * El servidor tiene su propio maximo de cada uno (maxNodes, maxMillis),
+	 * y la peticion solo puede pedir menos. Los sudokus que se quedan sin
+	 * presupuesto se responden con "?", y la cabecera X-Budget-Exceeded
+	 * lo indica para toda la peticion. X-Nodes lleva los nodos gastados.
+	 * En /generate el presupuesto se aplica a las busquedas del
+	 * Generator (ver Generator.setBudget).
+	 *
+	 * Un error inesperado en un endpoint se responde con un 500, sin
+	 * tirar la conexion.
+	 *
+	 * Las busquedas son siempre ordenadas (SearchConfig.ORDERED), para
+	 * que la misma peticion de siempre la misma respuesta y gaste los
+	 * mismos nodos. /count y /validate cuentan sin copiar las soluciones
+	 * (ver Solutions.countSolutions), y con Bitboard9 en los 9x9.
+	 *
+	 * Cada peticion se atiende en su propio hilo virtual si el JDK los
+	 * tiene (Java 21 o posterior). El codigo se compila para Java 8, asi
+	 * que el ejecutor se busca por reflexion, y si no existe se usa un
+	 * pool de hilos normales (ver newHandlerExecutor).
+	 */
+
+	// valores por defecto de los parametros
+	public static final int DEFAULT_LIMIT        = 1000;
+	public static final long DEFAULT_MAX_NODES   = 10000000L;
+	public static final long DEFAULT_MAX_MILLIS  = 10000L;
+	public static final int MAX_GENERATE         = 1000;
+	// tamaño maximo del cuerpo de una peticion
+	public static final int MAX_BODY             = 16 << 20;
+
+	static {
+		/* Sin TCP_NODELAY, la respuesta (cabeceras y cuerpo por separado)
+		 * se topa con el ACK retrasado del cliente, y cada peticion con
+		 * keep-alive espera unos 40 ms. La propiedad se lee al cargar el
+		 * servidor del JDK, asi que hay que ponerla antes de crearlo.
+		 */
+		if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long maxNodes;
+	private final long maxMillis;
+
+	public SolverServer(final InetSocketAddress address) throws IOException {
+		/** Servidor con los maximos por defecto */
+		this(address, DEFAULT_MAX_NODES, DEFAULT_MAX_MILLIS);
+	}
+
+	public SolverServer(final InetSocketAddress address, final long maxNodes, final long maxMillis) throws IOException {
+		this.server    = HttpServer.create(address, 0);
+		this.executor  = newHandlerExecutor();
+		this.maxNodes  = maxNodes;
+		this.maxMillis = maxMillis;
+		server.setExecutor(executor);
+		server.createContext("/solve", new SolveHandler());
+		server.createContext("/count", new CountHandler());
+		server.createContext("/validate", new ValidateHandler());
+		server.createContext("/generate", new GenerateHandler());
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop(final int delaySeconds) {
+		/** Para el servidor, esperando como mucho delaySeconds a las peticiones en curso */
+		server.stop(delaySeconds);
+		executor.shutdown();
+	}
+
+	public int getPort() {
+		/** Puerto real en el que escucha (util si se pidio el 0) */
+		return server.getAddress().getPort();
+	}
+
+	public static boolean hasVirtualThreads() {
+		/** true si el JDK permite atender cada peticion en un hilo virtual */
+		return findVirtualFactory() != null;
+	}
+
+	private static Method findVirtualFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch(NoSuchMethodException exc) {
+			return null;
+		}
+	}
+
+	static ExecutorService newHandlerExecutor() {
+		/** Un hilo virtual por peticion, o un pool de hilos daemon si no hay */
+		Method factory = findVirtualFactory();
+		if(factory != null) {
+			try {
+				return (ExecutorService) factory.invoke(null);
+			} catch(ReflectiveOperationException exc) {
+				/* Sigo con el pool normal */
+			}
+		}
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "sudoku-http-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private final class Budget {
+
+		/** Presupuesto de una peticion, compartido por todo el lote */
+
+		private final long deadline;
+		private long nodes;
+		private long spent;
+		private boolean exceeded;
+
+		Budget(final Map<String, String> params) {
+			long millis = Math.min(maxMillis, getLong(params, "ms", maxMillis));
+			this.nodes    = Math.min(maxNodes, getLong(params, "nodes", maxNodes));
+			this.deadline = System.nanoTime() + millis * 1000000L;
+		}
+
+		boolean isExhausted() {
+			if(nodes <= 0 || System.nanoTime() - deadline > 0)
+				exceeded = true;
+			return exceeded;
+		}
+
+		Solutions search(final Sudoku puzzle) {
+			Solutions solutions = new Solutions(puzzle, SearchConfig.ORDERED);
+			solutions.setBudget(nodes, deadline);
+			return solutions;
+		}
+
+		SolutionCount count(final Sudoku puzzle, final long limit) {
+			/** Cuenta sin copiar las soluciones, con Bitboard9 si es un 9x9 */
+			return (puzzle.getCache().SIDE == Bitboard9.SIDE)
+					? Bitboard9.countSolutions(puzzle, limit, nodes, deadline)
+					: Solutions.countSolutions(puzzle, limit, nodes, deadline);
+		}
+
+		boolean charge(final SolutionCount count) {
+			return charge(count.getNodes(), count.isBudgetExceeded());
+		}
+
+		boolean charge(final Solutions solutions) {
+			/** Descuenta los nodos de la busqueda. Devuelve false si se ha quedado sin presupuesto */
+			return charge(solutions.getNodes(), solutions.isBudgetExceeded());
+		}
+
+		boolean charge(final long used, final boolean over) {
+			nodes -= used;
+			spent += used;
+			if(over)
+				exceeded = true;
+			return !over;
+		}
+	}
+
+	private abstract class Endpoint implements HttpHandler {
+
+		/** Base de los endpoints: parametros, cuerpo, presupuesto y respuesta */
+
+		abstract boolean allowsGet();
+
+		abstract void handle(Map<String, String> params, String body, Budget budget, StringBuilder out)
+				throws BadRequest;
+
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException {
+			try {
+				String method = exchange.getRequestMethod();
+				if(!method.equals("POST") && !(allowsGet() && method.equals("GET"))) {
+					reply(exchange, 405, "error: metodo no admitido\n", null);
+					return;
+				}
+				Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+				String body = readBody(exchange.getRequestBody());
+				if(body == null) {
+					reply(exchange, 413, "error: peticion demasiado grande\n", null);
+					return;
+				}
+				Budget budget = new Budget(params);
+				StringBuilder out = new StringBuilder();
+				handle(params, body, budget, out);
+				reply(exchange, 200, out.toString(), budget);
+			} catch(BadRequest exc) {
+				reply(exchange, 400, "error: " + exc.getMessage() + "\n", null);
+			} catch(RuntimeException exc) {
+				reply(exchange, 500, "error: " + exc + "\n", null);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	private abstract class PuzzleEndpoint extends Endpoint {
+
+		/** Endpoint que procesa un lote de sudokus, uno por linea */
+
+		@Override
+		boolean allowsGet() {
+			return false;
+		}
+
+		abstract void answer(Map<String, String> params, Sudoku puzzle, Budget budget, StringBuilder out);
+
+		@Override
+		void handle(final Map<String, String> params, final String body, final Budget budget, final StringBuilder out)
+				throws BadRequest {
+			final Cache cache   = getCache(params);
+			final Parser parser = new Parser(cache);
+			int from = 0;
+			while(from < body.length()) {
+				int to = body.indexOf('\n', from);
+				if(to < 0)
+					to = body.length();
+				String line = body.substring(from, to).trim();
+				from = to + 1;
+				if(line.isEmpty() || line.charAt(0) == '#')
+					continue;
+				if(budget.isExhausted()) {
+					out.append("?\n");
+					continue;
+				}
+				Sudoku puzzle;
+				try {
+					puzzle = parser.parse(line);
+				} catch(DeadEndException exc) {
+					/* Las pistas ya chocan entre si */
+					answer(params, null, budget, out);
+					continue;
+				} catch(IllegalArgumentException exc) {
+					/* Valor fuera de rango (ver Parser) */
+					out.append("error: ").append(exc.getMessage()).append('\n');
+					continue;
+				}
+				if(parser.getCount() != cache.CELLS) {
+					out.append("error: ").append(parser.getCount()).append(" celdas, se esperaban ")
+							.append(cache.CELLS).append('\n');
+					continue;
+				}
+				answer(params, puzzle, budget, out);
+			}
+		}
+	}
+
+	private final class SolveHandler extends PuzzleEndpoint {
+
+		@Override
+		void answer(final Map<String, String> params, final Sudoku puzzle, final Budget budget, final StringBuilder out) {
+			if(puzzle == null) {
+				out.append("-\n");
+				return;
+			}
+			Solutions solutions = budget.search(puzzle);
+			boolean found = solutions.hasNext();
+			if(!budget.charge(solutions)) {
+				out.append("?\n");
+			} else if(!found) {
+				out.append("-\n");
+			} else {
+				encode(solutions.next(), out);
+			}
+		}
+	}
+
+	private final class CountHandler extends PuzzleEndpoint {
+
+		@Override
+		void answer(final Map<String, String> params, final Sudoku puzzle, final Budget budget, final StringBuilder out) {
+			if(puzzle == null) {
+				out.append("0\n");
+				return;
+			}
+			final long limit = getLong(params, "limit", DEFAULT_LIMIT);
+			SolutionCount count = budget.count(puzzle, limit);
+			if(!budget.charge(count)) {
+				out.append("?\n");
+			} else {
+				out.append(count.getSolutions()).append(count.isLimitReached() ? "+\n" : "\n");
+			}
+		}
+	}
+
+	private final class ValidateHandler extends PuzzleEndpoint {
+
+		@Override
+		void answer(final Map<String, String> params, final Sudoku puzzle, final Budget budget, final StringBuilder out) {
+			if(puzzle == null) {
+				out.append("none\n");
+				return;
+			}
+			SolutionCount count = budget.count(puzzle, 2);
+			long found = count.getSolutions();
+			if(!budget.charge(count)) {
+				out.append("?\n");
+			} else {
+				out.append((found == 0) ? "none\n" : (found == 1) ? "unique\n" : "multiple\n");
+			}
+		}
+	}
+
+	private final class GenerateHandler extends Endpoint {
+
+		/** Genera sudokus, con el presupuesto que quede para cada uno */
+
+		@Override
+		boolean allowsGet() {
+			return true;
+		}
+
+		@Override
+		void handle(final Map<String, String> params, final String body, final Budget budget, final StringBuilder out)
+				throws BadRequest {
+			final Cache cache = getCache(params);
+			final long count  = getLong(params, "n", 1);
+			final long clues  = getLong(params, "clues", 0);
+			if(count < 0 || count > MAX_GENERATE) {
+				throw new BadRequest("n debe estar entre 0 y " + MAX_GENERATE);
+			}
+			Generator.Difficulty difficulty;
+			try {
+				difficulty = Generator.Difficulty.valueOf(params.getOrDefault("difficulty", "HARD").toUpperCase());
+			} catch(IllegalArgumentException exc) {
+				throw new BadRequest("dificultad desconocida: " + params.get("difficulty"));
+			}
+			SearchConfig config = params.containsKey("seed")
+					? SearchConfig.seeded(getLong(params, "seed", 0)) : SearchConfig.RANDOM;
+			Generator generator = new Generator(cache, (int) clues, difficulty, config);
+			for(long i = 0; i < count; i++) {
+				if(budget.isExhausted()) {
+					out.append("?\n");
+					continue;
+				}
+				generator.setBudget(budget.nodes, budget.deadline);
+				Generator.Puzzle puzzle = generator.next();
+				if(!budget.charge(generator.getNodes(), generator.isBudgetExceeded())) {
+					out.append("?\n");
+				} else {
+					out.append((puzzle != null) ? puzzle.toString() : "-").append('\n');
+				}
+			}
+		}
+	}
+
+	private static final class BadRequest extends Exception {
+
+		/** Parametro invalido: se responde con 400 */
+
+		static final long serialVersionUID = 1;
+
+		BadRequest(final String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	private static Cache getCache(final Map<String, String> params) throws BadRequest {
+		long side = getLong(params, "side", 3);
+		if(side < 1 || side >= LongCache.MIN_SIDE) {
+			throw new BadRequest("lado no admitido: " + side);
+		}
+		return Cache.forSide((int) side);
+	}
+
+	private static long getLong(final Map<String, String> params, final String name, final long fallback) {
+		String value = params.get(name);
+		if(value == null)
+			return fallback;
+		try {
+			return Long.parseLong(value);
+		} catch(NumberFormatException exc) {
+			return fallback;
+		}
+	}
+
+	static Map<String, String> parseQuery(final String query) {
+		/** Parametros de la query string (el ultimo gana si se repiten) */
+		Map<String, String> params = new HashMap<String, String>();
+		if(query == null || query.isEmpty())
+			return params;
+		for(String pair: query.split("&")) {
+			int eq = pair.indexOf('=');
+			String key   = (eq < 0) ? pair : pair.substring(0, eq);
+			String value = (eq < 0) ? "" : pair.substring(eq + 1);
+			try {
+				params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch(IOException exc) {
+				/* UTF-8 siempre esta soportado */
+			}
+		}
+		return params;
+	}
+
+	private static String readBody(final InputStream input) throws IOException {
+		/** Lee el cuerpo completo, o devuelve null si pasa de MAX_BODY */
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] chunk = new byte[8192];
+		for(int read = input.read(chunk); read >= 0; read = input.read(chunk)) {
+			if(buffer.size() + read > MAX_BODY)
+				return null;
+			buffer.write(chunk, 0, read);
+		}
+		return new String(buffer.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private static void reply(final HttpExchange exchange, final int status, final String body, final Budget budget)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+		if(budget != null) {
+			exchange.getResponseHeaders().set("X-Nodes", Long.toString(budget.spent));
+			exchange.getResponseHeaders().set("X-Budget-Exceeded", Boolean.toString(budget.exceeded));
+		}
+		exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length);
+		if(bytes.length > 0) {
+			OutputStream output = exchange.getResponseBody();
+			output.write(bytes);
+			output.close();
+		}
+	}
+
+	private static void encode(final Sudoku solution, final StringBuilder out) {
+		/** Vuelca la solucion en formato compacto (como Batch) */
+		final int cells = solution.getCache().CELLS;
+		for(int offset = 0; offset < cells; offset++) {
+			int value = solution.getValue(offset);
+			out.append((char) ((value < 10) ? ('0' + value) : ('A' + value - 10)));
+		}
+		out.append('\n');
+	}
+
+	public static void main(String[] args) {
+		/**
+		 * Arranca el servidor.
+		 *
+		 * Uso: server [puerto] [direccion]
+		 *
+		 * Por defecto escucha en 127.0.0.1:8080.
+		 */
+		int port    = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+		String host = (args.length > 1) ? args[1] : "127.0.0.1";
+		try {
+			SolverServer server = new SolverServer(new InetSocketAddress(host, port));
+			server.start();
+			System.err.format("Escuchando en %s:%d (%s)\n", host, server.getPort(),
+					hasVirtualThreads() ? "hilos virtuales" : "pool de hilos");
+		} catch(IOException exc) {
+			System.err.format("No se pudo arrancar el servidor: %s\n", exc.getMessage());
+			System.exit(-1);
+		}
+	}
+}
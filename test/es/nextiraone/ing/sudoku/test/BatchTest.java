@@ -0,0 +1,49 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Batch;
+import es.nextiraone.ing.sudoku.core.Cache;
+
+
+public class BatchTest {
+
+	@Test
+	public void testRun() throws IOException, InterruptedException {
+		/** Comprueba que se resuelven todos los sudokus, en orden.
+		 *
+		 * El fichero mezcla los dos formatos: una linea compacta, un
+		 * sudoku con separadores en varias lineas, y un sudoku sin
+		 * solucion (dos "1" en la misma fila).
+		 */
+		String solved = "483921657967345821251876493548132976729564138136798245372689514814253769695417382";
+		String input =
+			"# comentario\n" +
+			"..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..\n" +
+			"\n" +
+			"0 0 3, 0 2 0, 6 0 0\n9 0 0, 3 0 5, 0 0 1\n0 0 1, 8 0 6, 4 0 0\n" +
+			"0 0 8, 1 0 2, 9 0 0\n7 0 0, 0 0 0, 0 0 8\n0 0 6, 7 0 8, 2 0 0\n" +
+			"0 0 2, 6 0 9, 5 0 0\n8 0 0, 2 0 3, 0 0 9\n0 0 5, 0 1 0, 3 0 0\n" +
+			"11..............................................................................." +
+			"\n";
+		File file = File.createTempFile("batch", ".txt");
+		file.deleteOnExit();
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			stream.write(input.getBytes("US-ASCII"));
+		} finally {
+			stream.close();
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Batch.Report report = new Batch(new Cache(3), 2, 4).run(file, output);
+		Assert.assertEquals(report.getPuzzles(), 3);
+		Assert.assertEquals(report.getSolved(), 2);
+		Assert.assertEquals(output.toString("US-ASCII"), solved + "\n" + solved + "\n-\n");
+	}
+}
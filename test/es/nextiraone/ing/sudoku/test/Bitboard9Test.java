@@ -0,0 +1,58 @@
+package es.nextiraone.ing.sudoku.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Bitboard9;
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class Bitboard9Test extends SudokuBase {
+
+	@Test
+	public void testSolve() throws DeadEndException {
+		/** La solucion respeta las pistas y es la misma que la de Solutions */
+		Sudoku puzzle   = Sudoku.fromString(cache, UNIQUE);
+		Sudoku solution = Bitboard9.solve(puzzle);
+		Sudoku expected = new Solutions(puzzle, false).next();
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			Assert.assertEquals(solution.getValue(offset), expected.getValue(offset));
+		}
+		Assert.assertEquals(Bitboard9.hasUniqueSolution(puzzle), true);
+	}
+
+	@Test
+	public void testSameCount() throws DeadEndException {
+		/** Cuenta lo mismo que Solutions, con y sin limite */
+		sudoku.fix(0, 1);
+		sudoku.fix(1, 2);
+		sudoku.fix(9, 3);
+		Assert.assertEquals(Bitboard9.countSolutions(sudoku, 2000).getSolutions(),
+				Solutions.countSolutions(sudoku, 2000).getSolutions());
+		Assert.assertEquals(Bitboard9.countSolutions(sudoku, 10).isLimitReached(), true);
+		Assert.assertEquals(Bitboard9.hasUniqueSolution(sudoku), false);
+	}
+
+	@Test
+	public void testEmpty() {
+		/** Sudoku.solve elige este motor para un 9x9, y la solucion es valida */
+		Sudoku solution = sudoku.solve();
+		for(int a = 0; a < cache.DIMS; a++) {
+			int row = 0, col = 0;
+			for(int b = 0; b < cache.DIMS; b++) {
+				row |= 1 << solution.getValue(a * cache.DIMS + b);
+				col |= 1 << solution.getValue(b * cache.DIMS + a);
+			}
+			Assert.assertEquals(row, 0x3FE);
+			Assert.assertEquals(col, 0x3FE);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSide() {
+		new Bitboard9(new Sudoku(new Cache(2)));
+	}
+}
@@ -1,9 +1,18 @@
 package es.nextiraone.ing.sudoku.test;
 
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.LongCache;
 
 
 public class CacheTest {
@@ -38,4 +47,75 @@ public class CacheTest {
 		Assert.assertArrayEquals(cache.translate(4, 2), array_35);
 	}
 
+	@Test
+	public void testOptions() {
+		/** Comprueba que se recorren los bits de una mascara sin boxing */
+		Cache cache = new Cache(3);
+		int mask = (1 << 0) | (1 << 4) | (1 << 8);
+		final int[] expected = { 1, 5, 9 };
+		// Variante PrimitiveIterator.OfInt
+		PrimitiveIterator.OfInt options = cache.getOption(mask, 1);
+		for(int value: expected) {
+			Assert.assertTrue(options.hasNext());
+			Assert.assertEquals(options.nextInt(), value);
+		}
+		Assert.assertFalse(options.hasNext());
+		// Variante con consumer
+		final int[] found = new int[expected.length];
+		final int[] index = { 0 };
+		cache.forEachOption(mask, 1, value -> found[index[0]++] = value);
+		Assert.assertArrayEquals(found, expected);
+	}
+
+	@Test
+	public void testPeers() {
+		/** Cada celda tiene PEERS vecinos distintos, todos en su fila, columna o cuadro */
+		for(int side = 2; side <= 4; side++) {
+			Cache cache = Cache.forSide(side);
+			int[] peers = cache.getPeers();
+			Assert.assertEquals(peers.length, cache.CELLS * cache.PEERS);
+			for(int offset = 0; offset < cache.CELLS; offset++) {
+				int row = offset / cache.DIMS, col = offset % cache.DIMS;
+				int square = cache.translate(row, col)[0];
+				Set<Integer> seen = new HashSet<Integer>();
+				for(int i = offset * cache.PEERS; i < (offset + 1) * cache.PEERS; i++) {
+					int peer = peers[i];
+					int prow = peer / cache.DIMS, pcol = peer % cache.DIMS;
+					Assert.assertNotEquals(peer, offset);
+					Assert.assertTrue(prow == row || pcol == col ||
+							cache.translate(prow, pcol)[0] == square);
+					seen.add(peer);
+				}
+				Assert.assertEquals(seen.size(), cache.PEERS);
+			}
+		}
+		Assert.assertEquals(Cache.forSide(3).PEERS, 20);
+	}
+
+	@Test
+	public void testForSide() throws Exception {
+		/** forSide devuelve siempre la misma instancia, aunque se pida desde varios hilos */
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			Callable<Cache> task = () -> Cache.forSide(4);
+			Future<?>[] futures = new Future<?>[16];
+			for(int i = 0; i < futures.length; i++) {
+				futures[i] = pool.submit(task);
+			}
+			Cache cache = Cache.forSide(4);
+			for(Future<?> future: futures) {
+				Assert.assertSame(cache, future.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertSame(Cache.forSide(3), Cache.forSide(3));
+		Assert.assertNotSame(Cache.forSide(3), Cache.forSide(2));
+		Assert.assertSame(LongCache.forSide(6), LongCache.forSide(6));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testForSideLimit() {
+		Cache.forSide(LongCache.MIN_SIDE);
+	}
 }
@@ -0,0 +1,59 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.DancingLinks;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class DancingLinksTest extends SudokuBase {
+
+	@Test
+	public void testAllSolutions() {
+		/** Recorre las 288 soluciones de un 4x4 vacio, todas distintas */
+		DancingLinks all = new DancingLinks(new Sudoku(new Cache(2)));
+		Set<String> found = new HashSet<String>();
+		while(all.hasNext()) {
+			Sudoku solution = all.next();
+			for(int offset = 0; offset < 16; offset++) {
+				Assert.assertNotEquals(solution.getValue(offset), 0);
+			}
+			found.add(solution.toString());
+		}
+		Assert.assertEquals(found.size(), 288);
+	}
+
+	@Test
+	public void testSameCount() throws DeadEndException {
+		/** Cuenta lo mismo que Solutions, con y sin limite */
+		Sudoku empty = new Sudoku(new Cache(2));
+		SolutionCount some = DancingLinks.countSolutions(empty, 10);
+		Assert.assertEquals(some.getSolutions(), 10);
+		Assert.assertEquals(some.isLimitReached(), true);
+		sudoku.fix(0, 1);
+		sudoku.fix(1, 2);
+		Assert.assertEquals(DancingLinks.countSolutions(sudoku, 500).getSolutions(),
+				Solutions.countSolutions(sudoku, 500).getSolutions());
+	}
+
+	@Test
+	public void testUniqueSolution() throws DeadEndException {
+		/** Comprueba la unicidad, y que la solucion respeta las pistas */
+		Sudoku puzzle = Sudoku.fromString(cache, UNIQUE);
+		Assert.assertEquals(DancingLinks.hasUniqueSolution(puzzle), true);
+		Assert.assertEquals(DancingLinks.hasUniqueSolution(sudoku), false);
+		Sudoku solution = new DancingLinks(puzzle).next();
+		Sudoku expected = puzzle.solve();
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			Assert.assertEquals(solution.getValue(offset), expected.getValue(offset));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Generator;
+import es.nextiraone.ing.sudoku.core.Pipeline;
+import es.nextiraone.ing.sudoku.core.SearchConfig;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class GeneratorTest extends SudokuBase {
+
+	private boolean solvedBy(Generator.Puzzle puzzle, Pipeline pipeline) throws DeadEndException {
+		/** Comprueba si el pipeline resuelve el sudoku generado sin buscar */
+		Sudoku loaded = new Sudoku(cache);
+		loaded.setPipeline(pipeline);
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			if(puzzle.getGiven(offset) != 0)
+				loaded.fix(offset, puzzle.getGiven(offset));
+		}
+		loaded.heuristic();
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			if(loaded.getValue(offset) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Test
+	public void testUnique() {
+		/** Los sudokus generados tienen solucion unica, y es la que dicen */
+		for(Generator.Difficulty difficulty: Generator.Difficulty.values()) {
+			Generator generator = new Generator(cache, 0, difficulty, SearchConfig.seeded(1));
+			Generator.Puzzle puzzle = generator.next();
+			Assert.assertNotNull(puzzle);
+			Sudoku loaded = puzzle.toSudoku();
+			Assert.assertEquals(Solutions.hasUniqueSolution(loaded), true);
+			Sudoku solution = loaded.solve();
+			int clues = 0;
+			for(int offset = 0; offset < cache.CELLS; offset++) {
+				Assert.assertEquals(solution.getValue(offset), puzzle.getSolution(offset));
+				if(puzzle.getGiven(offset) != 0) {
+					Assert.assertEquals(puzzle.getGiven(offset), puzzle.getSolution(offset));
+					clues++;
+				}
+			}
+			Assert.assertEquals(puzzle.getClues(), clues);
+		}
+	}
+
+	@Test
+	public void testDifficulty() throws DeadEndException {
+		/** Cada dificultad se resuelve con su techo, y no con su suelo */
+		SearchConfig config = SearchConfig.seeded(2);
+		Generator.Puzzle easy = new Generator(cache, 0, Generator.Difficulty.EASY, config).next();
+		Assert.assertEquals(solvedBy(easy, Pipeline.BASIC), true);
+		Generator.Puzzle medium = new Generator(cache, 0, Generator.Difficulty.MEDIUM, config).next();
+		Assert.assertEquals(solvedBy(medium, Pipeline.FULL), true);
+		Assert.assertEquals(solvedBy(medium, Pipeline.BASIC), false);
+		Generator.Puzzle hard = new Generator(cache, 0, Generator.Difficulty.HARD, config).next();
+		Assert.assertEquals(solvedBy(hard, Pipeline.FULL), false);
+	}
+
+	@Test
+	public void testClues() {
+		/** Se dejan de quitar pistas al llegar al objetivo */
+		Generator generator = new Generator(cache, 40, Generator.Difficulty.EASY, SearchConfig.seeded(3));
+		Assert.assertEquals(generator.next().getClues(), 40);
+	}
+
+	@Test
+	public void testParallel() {
+		/** Con la misma semilla, la generacion en paralelo da los mismos sudokus */
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<Generator.Puzzle> first  = new Generator(cache, 0, Generator.Difficulty.EASY, SearchConfig.seeded(4)).generate(8, pool);
+			List<Generator.Puzzle> second = new Generator(cache, 0, Generator.Difficulty.EASY, SearchConfig.seeded(4)).generate(8, pool);
+			Assert.assertEquals(first.size(), 8);
+			for(int i = 0; i < first.size(); i++) {
+				Assert.assertEquals(first.get(i).toString(), second.get(i).toString());
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
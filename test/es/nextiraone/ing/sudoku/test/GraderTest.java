@@ -0,0 +1,75 @@
+package es.nextiraone.ing.sudoku.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Generator;
+import es.nextiraone.ing.sudoku.core.Grader;
+import es.nextiraone.ing.sudoku.core.Parser;
+import es.nextiraone.ing.sudoku.core.SearchConfig;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class GraderTest extends SudokuBase {
+
+	private Sudoku load(String data) throws DeadEndException {
+		/** Carga las pistas sin aplicar la heuristica */
+		Sudoku puzzle = new Sudoku(cache);
+		new Parser(cache).load(puzzle, data, 0, data.length());
+		return puzzle;
+	}
+
+	@Test
+	public void testLogic() throws DeadEndException {
+		/** Un sudoku facil se resuelve sin buscar, y el histograma suma las rondas */
+		Grader.Grade easy = new Grader().grade(load(UNIQUE));
+		Assert.assertEquals(easy.isSolvedByLogic(), true);
+		Assert.assertEquals(easy.getSolutions(), 1);
+		Assert.assertEquals(easy.getNodes(), 0);
+		Generator.Puzzle medium = new Generator(cache, 0, Generator.Difficulty.MEDIUM, SearchConfig.seeded(6)).next();
+		Grader.Grade grade = new Grader().grade(load(medium.toString()));
+		Assert.assertEquals(grade.isSolvedByLogic(), true);
+		long rounds = 0, score = 0;
+		for(int index = 0; index < grade.getStrategies(); index++) {
+			rounds += grade.getFired(index);
+			score  += grade.getFired(index) * grade.getStrategy(index).getCost();
+		}
+		Assert.assertEquals(grade.getRounds(), rounds);
+		Assert.assertEquals(grade.getScore(), score);
+		Assert.assertEquals(grade.getRounds() > 0, true);
+	}
+
+	@Test
+	public void testSearch() throws DeadEndException {
+		/** Un sudoku dificil necesita buscar, y puntua mas que uno facil */
+		Generator.Puzzle hard = new Generator(cache, 0, Generator.Difficulty.HARD, SearchConfig.seeded(5)).next();
+		Grader grader = new Grader();
+		Grader.Grade grade = grader.grade(load(hard.toString()));
+		Assert.assertEquals(grade.isSolvedByLogic(), false);
+		Assert.assertEquals(grade.getSolutions(), 1);
+		Assert.assertEquals(grade.getNodes() > 0, true);
+		Assert.assertEquals(grade.getDepth() > 0, true);
+		Assert.assertEquals(grade.getScore() > grader.grade(load(UNIQUE)).getScore(), true);
+		/* El Grader se puede reutilizar, con los contadores a cero */
+		Assert.assertEquals(grader.grade(load(hard.toString())).toString(), grade.toString());
+	}
+
+	@Test
+	public void testMultiple() {
+		/** Un sudoku vacio tiene mas de una solucion */
+		Grader.Grade grade = new Grader().grade(sudoku);
+		Assert.assertEquals(grade.getSolutions(), 2);
+		Assert.assertEquals(grade.isSolvedByLogic(), false);
+	}
+
+	@Test
+	public void testSubsets() throws DeadEndException {
+		/** Los subconjuntos cuentan en el histograma por tamaño */
+		Generator.Puzzle medium = new Generator(cache, 0, Generator.Difficulty.MEDIUM, SearchConfig.seeded(6)).next();
+		Grader.Grade grade = new Grader().grade(load(medium.toString()));
+		Assert.assertEquals(grade.isSolvedByLogic(), true);
+		Assert.assertEquals(grade.getMaxSubset() >= 2, true);
+		Assert.assertEquals(grade.getSubsets(grade.getMaxSubset()) > 0, true);
+	}
+}
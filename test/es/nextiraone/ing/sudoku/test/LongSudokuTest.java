@@ -0,0 +1,107 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Board;
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.LongCache;
+import es.nextiraone.ing.sudoku.core.LongSudoku;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class LongSudokuTest {
+
+	private static final int SIDE = 6;
+	private static final int DIMS = SIDE * SIDE;
+
+	@Test
+	public void testCreate() {
+		/** Board.create elige el tipo de sudoku segun el lado */
+		Assert.assertTrue(Board.create(3) instanceof Sudoku);
+		Assert.assertTrue(Board.create(5) instanceof Sudoku);
+		Assert.assertTrue(Board.create(6) instanceof LongSudoku);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIntCacheLimit() {
+		/** Un Cache de mascaras int no puede ser de lado 6 */
+		new Cache(SIDE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLongCacheLimit() {
+		/** Un LongCache tampoco admite lados menores que 1 */
+		new LongCache(0);
+	}
+
+	@Test
+	public void testEmpty() {
+		/** Un 36x36 vacio tiene solucion */
+		check(Board.create(SIDE).solve(), null);
+	}
+
+	@Test
+	public void testClues() throws DeadEndException {
+		/** Un 36x36 con pistas se resuelve respetandolas */
+		Random random = new Random(1);
+		int[] clues = new int[DIMS * DIMS];
+		StringBuilder text = new StringBuilder();
+		for(int row = 0; row < DIMS; row++) {
+			for(int col = 0; col < DIMS; col++) {
+				int value = (SIDE * (row % SIDE) + row / SIDE + col) % DIMS + 1;
+				clues[row * DIMS + col] = (random.nextInt(5) == 0) ? 0 : value;
+				text.append(clues[row * DIMS + col]).append(' ');
+			}
+		}
+		LongSudoku sudoku = LongSudoku.fromString(new LongCache(SIDE), text.toString());
+		check(sudoku.solve(), clues);
+	}
+
+	@Test(expected = DeadEndException.class)
+	public void testNakedSubsets() throws DeadEndException {
+		/** La heuristica ve que seis celdas solo pueden tomar dos valores.
+		 *
+		 * La fila 0 tiene fijados los valores 10 a 36, y el cuadro 0 los
+		 * valores 1 a 7 en las filas 1 y 2. A las celdas de la fila 0 en
+		 * el cuadro 0 solo les quedan el 8 y el 9, pero eso solo lo ven
+		 * las parejas desnudas, no la propagacion.
+		 */
+		LongSudoku sudoku = new LongSudoku(new LongCache(SIDE));
+		for(int col = 9; col < DIMS; col++) {
+			sudoku.fix(col, col + 1);
+		}
+		for(int col = 0; col < SIDE; col++) {
+			sudoku.fix(DIMS + col, col + 1);
+		}
+		sudoku.fix(2 * DIMS, SIDE + 1);
+		sudoku.heuristic();
+	}
+
+	private void check(final Board solution, final int[] clues) {
+		/** Comprueba que la solucion es valida y respeta las pistas */
+		Assert.assertNotNull(solution);
+		for(int a = 0; a < DIMS; a++) {
+			long row = 0, col = 0, square = 0;
+			for(int b = 0; b < DIMS; b++) {
+				row    |= 1L << (solution.getValue(a * DIMS + b) - 1);
+				col    |= 1L << (solution.getValue(b * DIMS + a) - 1);
+				int r   = (a / SIDE) * SIDE + b / SIDE;
+				int c   = (a % SIDE) * SIDE + b % SIDE;
+				square |= 1L << (solution.getValue(r * DIMS + c) - 1);
+			}
+			Assert.assertEquals(Long.bitCount(row), DIMS);
+			Assert.assertEquals(Long.bitCount(col), DIMS);
+			Assert.assertEquals(Long.bitCount(square), DIMS);
+		}
+		if(clues != null) {
+			for(int offset = 0; offset < clues.length; offset++) {
+				if(clues[offset] != 0)
+					Assert.assertEquals(solution.getValue(offset), clues[offset]);
+			}
+		}
+	}
+}
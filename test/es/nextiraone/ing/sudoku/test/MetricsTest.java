@@ -0,0 +1,68 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Metrics;
+import es.nextiraone.ing.sudoku.core.Solutions;
+
+
+public class MetricsTest extends SudokuBase {
+
+	@Test
+	public void testLatency() {
+		/** El histograma cuenta cada latencia en su potencia de dos */
+		Metrics.reset();
+		for(int i = 0; i < 99; i++) {
+			Metrics.recordLatency(1000);
+		}
+		Metrics.recordLatency(1000000);
+		Metrics.Snapshot snapshot = Metrics.snapshot();
+		Assert.assertEquals(snapshot.getSolves(), 100);
+		Assert.assertEquals(snapshot.getLatencyBucket(9), 99);
+		Assert.assertEquals(snapshot.getLatencyBucket(19), 1);
+		Assert.assertEquals(snapshot.getLatencyPercentileNanos(50), 1023);
+		Assert.assertEquals(snapshot.getLatencyPercentileNanos(99), 1023);
+		Assert.assertEquals(snapshot.getLatencyPercentileNanos(100), (1 << 20) - 1);
+		Assert.assertEquals(snapshot.getMeanLatencyNanos(), (99 * 1000 + 1000000) / 100.0, 0.001);
+		Metrics.reset();
+		Assert.assertEquals(Metrics.snapshot().getSolves(), 0);
+	}
+
+	@Test
+	public void testMBean() throws JMException {
+		/** El MBean se registra una sola vez, y publica los contadores */
+		ObjectName name = Metrics.register();
+		Assert.assertEquals(Metrics.register(), name);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		Metrics.reset();
+		Metrics.recordLatency(5000);
+		Assert.assertEquals(server.getAttribute(name, "Solves"), 1L);
+		Assert.assertEquals(server.getAttribute(name, "Enabled"), Metrics.ENABLED);
+		server.invoke(name, "reset", null, null);
+		Assert.assertEquals(server.getAttribute(name, "Solves"), 0L);
+	}
+
+	@Test
+	public void testCounters() throws DeadEndException {
+		/** Con -Dsudoku.metrics=true, resolver mueve los contadores */
+		Assume.assumeTrue(Metrics.ENABLED);
+		Metrics.reset();
+		sudoku.fix(0, 1);
+		Solutions.countSolutions(sudoku.solve(), 2);
+		sudoku.countSolutions(2);
+		Metrics.Snapshot snapshot = Metrics.snapshot();
+		Assert.assertEquals(snapshot.getFixes() > 0, true);
+		Assert.assertEquals(snapshot.getNarrowed() > 0, true);
+		Assert.assertEquals(snapshot.getNodes() > 0, true);
+		Assert.assertEquals(snapshot.getSolves(), 2);
+	}
+}
@@ -0,0 +1,47 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.ParallelSolutions;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class ParallelSolutionsTest {
+
+	private ParallelSolutions solutions;
+
+	@Before
+	public void setUp() {
+		/** Sudoku 4x4 vacio, partiendo el arbol hasta 3 niveles */
+		Sudoku empty = new Sudoku(new Cache(2));
+		solutions = new ParallelSolutions(empty, new ForkJoinPool(4), 3, 0);
+	}
+
+	@Test
+	public void testCount() {
+		/** Un sudoku 4x4 vacio tiene 288 soluciones */
+		Assert.assertEquals(solutions.count(), 288);
+	}
+
+	@Test
+	public void testCountLimit() {
+		/** La cuenta se para al llegar al limite */
+		Assert.assertEquals(solutions.count(10), 10);
+	}
+
+	@Test
+	public void testFirst() {
+		/** Devuelve solo las soluciones pedidas, y todas resueltas */
+		List<Sudoku> first = solutions.first(5);
+		Assert.assertEquals(first.size(), 5);
+		for(Sudoku sudoku: first) {
+			Assert.assertEquals(sudoku.getAt(0, 0).getLength(), 1);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.Cell;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Parser;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class ParserTest extends SudokuBase {
+
+	private static final String COMPACT =
+		"..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..";
+	private static final String SEPARATED =
+		"0 0 3, 0 2 0, 6 0 0\n9 0 0, 3 0 5, 0 0 1\n0 0 1, 8 0 6, 4 0 0\n" +
+		"0 0 8, 1 0 2, 9 0 0\n7 0 0, 0 0 0, 0 0 8\n0 0 6, 7 0 8, 2 0 0\n" +
+		"0 0 2, 6 0 9, 5 0 0\n8 0 0, 2 0 3, 0 0 9\n0 0 5, 0 1 0, 3 0 0\n";
+
+	private void assertSame(Sudoku expected, Sudoku actual) {
+		/** Compara las opciones de todas las celdas de dos sudokus */
+		for(int row = 0; row < size; row++) {
+			for(int col = 0; col < size; col++) {
+				Cell expectedCell = expected.getAt(row, col);
+				Cell actualCell   = actual.getAt(row, col);
+				Assert.assertEquals(actualCell.getLength(), expectedCell.getLength());
+				if(expectedCell.getLength() == 1)
+					Assert.assertEquals(actualCell.getValue(), expectedCell.getValue());
+			}
+		}
+	}
+
+	@Test
+	public void testFormats() throws Exception {
+		/** El formato compacto y el separado dan el mismo sudoku */
+		Parser parser = new Parser(cache);
+		Sudoku separated = parser.parse(SEPARATED);
+		assertSame(separated, parser.parse(COMPACT));
+		assertSame(separated, parser.parse("# comentario\n" + COMPACT.replace('.', '0')));
+		byte[] bytes = COMPACT.getBytes("US-ASCII");
+		assertSame(separated, parser.parse(bytes, 0, bytes.length));
+		assertSame(separated, parser.parse(ByteBuffer.wrap(bytes)));
+		Assert.assertEquals(parser.getCount(), cache.CELLS);
+	}
+
+	@Test
+	public void testLetters() throws DeadEndException {
+		/** En sudokus de 16x16, las letras son valores mayores que 9 */
+		Cache big = new Cache(4);
+		StringBuilder data = new StringBuilder("G.A1");
+		while(data.length() < big.CELLS)
+			data.append('.');
+		Sudoku sudoku = new Parser(big).parse(data);
+		Assert.assertEquals(sudoku.getAt(0, 0).getValue(), 16);
+		Assert.assertEquals(sudoku.getAt(0, 2).getValue(), 10);
+		Assert.assertEquals(sudoku.getAt(0, 3).getValue(), 1);
+		/* Con separadores, los valores se leen como numeros */
+		sudoku = new Parser(big).parse("16 0 10 1");
+		Assert.assertEquals(sudoku.getAt(0, 0).getValue(), 16);
+		Assert.assertEquals(sudoku.getAt(0, 2).getValue(), 10);
+	}
+
+	@Test
+	public void testLabels() throws DeadEndException {
+		/** En sudokus de 9x9, las letras son separadores */
+		StringBuilder data = new StringBuilder();
+		String[] rows = SEPARATED.split("\n");
+		for(int row = 0; row < rows.length; row++) {
+			data.append("Fila ").append((char) ('A' + row)).append(": ").append(rows[row]).append('\n');
+		}
+		Parser parser = new Parser(cache);
+		assertSame(parser.parse(SEPARATED), parser.parse(data));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidValue() throws DeadEndException {
+		/** Los valores fuera de rango no se aceptan */
+		new Parser(new Cache(4)).parse("1 2 Z");
+	}
+}
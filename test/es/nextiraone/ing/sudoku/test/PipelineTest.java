@@ -0,0 +1,91 @@
+package es.nextiraone.ing.sudoku.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.Cache;
+import es.nextiraone.ing.sudoku.core.CombinedSubsets;
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.Intersections;
+import es.nextiraone.ing.sudoku.core.Pipeline;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
+import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Strategy;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+
+
+public class PipelineTest extends SudokuBase {
+
+	@Test
+	public void testOrder() {
+		/** Las estrategias quedan ordenadas por coste */
+		Strategy[] strategies = Pipeline.FULL.getStrategies();
+		for(int i = 1; i < strategies.length; i++) {
+			Assert.assertTrue(strategies[i - 1].getCost() <= strategies[i].getCost());
+		}
+	}
+
+	@Test
+	public void testHiddenSingle() throws DeadEndException {
+		/** El mismo caso que SudokuFixTest.testFixDoesCombine, sin combinatoria */
+		sudoku.setPipeline(Pipeline.BASIC);
+		sudoku.fix(new Fix(cache, 0, 3, 1));
+		sudoku.fix(new Fix(cache, 1, 6, 1));
+		sudoku.fix(new Fix(cache, 3, 0, 1));
+		sudoku.fix(new Fix(cache, 6, 1, 1));
+		cell = sudoku.getAt(2, 2);
+		Assert.assertEquals(cell.getLength(), 1);
+		Assert.assertEquals(cell.getValue(),  1);
+	}
+
+	@Test
+	public void testIntersection() throws DeadEndException {
+		/** Con la segunda y tercera fila del primer cuadro llenas, el
+		 * "1" del cuadro tiene que ir en la primera fila, asi que se
+		 * puede quitar del resto de esa fila.
+		 */
+		sudoku.setPipeline(new Pipeline(new Intersections()));
+		int value = 2;
+		for(int row = 1; row < 3; row++) {
+			for(int col = 0; col < 3; col++) {
+				sudoku.fix(new Fix(cache, row, col, value++));
+			}
+		}
+		for(int col = 3; col < size; col++) {
+			Assert.assertEquals(sudoku.getAt(0, col).contains(1), false);
+		}
+		Assert.assertEquals(sudoku.getAt(3, 3).contains(1), true);
+	}
+
+	@Test
+	public void testSameSolutions() throws DeadEndException {
+		/** Todos los pipelines llevan a las mismas soluciones */
+		Pipeline[] pipelines = { Pipeline.SUBSETS, Pipeline.BASIC, Pipeline.FULL };
+		String expected = null;
+		for(Pipeline pipeline: pipelines) {
+			Sudoku start = Sudoku.fromString(cache, UNIQUE);
+			start.setPipeline(pipeline);
+			start.heuristic();
+			SolutionCount count = Solutions.countSolutions(start, 2);
+			Assert.assertEquals(count.getSolutions(), 1);
+			String solution = new Solutions(start).next().toString();
+			if(expected == null)
+				expected = solution;
+			Assert.assertEquals(solution, expected);
+		}
+	}
+
+	@Test
+	public void testBoundedSubsets() {
+		/** Con limite, la combinatoria resuelve un 16x16 vacio enseguida */
+		CombinedSubsets.resetExamined();
+		Sudoku empty = new Sudoku(new Cache(4));
+		empty.setPipeline(new Pipeline(new CombinedSubsets(3)));
+		Solutions solutions = new Solutions(empty, false);
+		Assert.assertEquals(solutions.hasNext(), true);
+		Assert.assertTrue(CombinedSubsets.getExamined() > 0);
+		CombinedSubsets.resetExamined();
+		Assert.assertEquals(CombinedSubsets.getExamined(), 0);
+	}
+}
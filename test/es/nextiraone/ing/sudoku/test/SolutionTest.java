@@ -3,8 +3,14 @@ package es.nextiraone.ing.sudoku.test;
 import org.junit.Assert;
 import org.junit.Test;
 
+import es.nextiraone.ing.sudoku.core.Cache;
 import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.ParallelSolutions;
+import es.nextiraone.ing.sudoku.core.SearchConfig;
+import es.nextiraone.ing.sudoku.core.SolutionCount;
 import es.nextiraone.ing.sudoku.core.Solutions;
+import es.nextiraone.ing.sudoku.core.Sorter;
+import es.nextiraone.ing.sudoku.core.Sudoku;
 
 
 public class SolutionTest extends  SudokuBase {
@@ -20,4 +26,92 @@ public class SolutionTest extends  SudokuBase {
 		Assert.assertEquals(solution.hasNext(), true);
 	}
 
+	@Test
+	public void testAllSolutions() {
+		/** Comprueba que se recorren todas las soluciones.
+		 *
+		 * Un sudoku de lado 2 (4x4) vacio tiene exactamente 288
+		 * soluciones distintas.
+		 */
+		Solutions all = new Solutions(new Sudoku(new Cache(2)));
+		int found = 0;
+		for(; all.hasNext(); found++) {
+			all.next();
+		}
+		Assert.assertEquals(found, 288);
+		Assert.assertEquals(all.hasNext(), false);
+	}
+
+	@Test
+	public void testCountSolutions() {
+		/** Comprueba la cuenta de soluciones, con y sin limite */
+		Sudoku empty = new Sudoku(new Cache(2));
+		SolutionCount all = Solutions.countSolutions(empty, 1000);
+		Assert.assertEquals(all.getSolutions(), 288);
+		Assert.assertEquals(all.isLimitReached(), false);
+		Assert.assertTrue(all.getNodes() > 0);
+		SolutionCount some = Solutions.countSolutions(empty, 10);
+		Assert.assertEquals(some.getSolutions(), 10);
+		Assert.assertEquals(some.isLimitReached(), true);
+	}
+
+	@Test
+	public void testUniqueSolution() throws DeadEndException {
+		/** Un sudoku bien planteado tiene una unica solucion */
+		Assert.assertEquals(Solutions.hasUniqueSolution(Sudoku.fromString(cache, UNIQUE)), true);
+		Assert.assertEquals(Solutions.hasUniqueSolution(sudoku), false);
+	}
+
+	@Test
+	public void testTieBreak() throws DeadEndException {
+		/** Todos los desempates recorren las mismas soluciones */
+		for(Sorter.TieBreak tieBreak: Sorter.TieBreak.values()) {
+			Solutions all = new Solutions(new Sudoku(new Cache(2)), tieBreak);
+			int found = 0;
+			for(; all.hasNext(); found++) {
+				all.next();
+			}
+			Assert.assertEquals(found, 288);
+		}
+		/* En un sudoku vacio, todas las celdas empatan en opciones y en
+		 * grado, asi que FIRST y DEGREE eligen la primera.
+		 */
+		Assert.assertEquals(new Sorter(sudoku, Sorter.TieBreak.FIRST, null).pivot(), 0);
+		Assert.assertEquals(new Sorter(sudoku, Sorter.TieBreak.DEGREE, null).pivot(), 0);
+		/* Con dos celdas fijadas, DEGREE sigue eligiendo entre las de
+		 * menos opciones (MRV manda sobre el desempate).
+		 */
+		sudoku.fix(4, 1);
+		sudoku.fix(40, 2);
+		int pivot = new Sorter(sudoku, Sorter.TieBreak.DEGREE, null).pivot();
+		int first = new Sorter(sudoku, Sorter.TieBreak.FIRST, null).pivot();
+		Assert.assertEquals(sudoku.getAt(pivot / 9, pivot % 9).getLength(),
+				sudoku.getAt(first / 9, first % 9).getLength());
+	}
+
+	@Test
+	public void testSeeded() {
+		/** Con la misma semilla, dos busquedas recorren el mismo arbol */
+		SearchConfig config = SearchConfig.seeded(42);
+		Solutions first  = new Solutions(sudoku, config);
+		Solutions second = new Solutions(sudoku, config);
+		for(int i = 0; i < 20; i++) {
+			Assert.assertEquals(first.next().toString(), second.next().toString());
+		}
+		Assert.assertEquals(first.getNodes(), second.getNodes());
+		Assert.assertEquals(first.getDeadends(), second.getDeadends());
+		/* Sin aleatoriedad no hace falta semilla */
+		Solutions ordered = new Solutions(sudoku, SearchConfig.ORDERED);
+		Solutions again   = new Solutions(sudoku, false);
+		Assert.assertEquals(ordered.next().toString(), again.next().toString());
+		Assert.assertEquals(SearchConfig.ORDERED.newRandom(), null);
+	}
+
+	@Test
+	public void testSeededParallel() {
+		/** La busqueda paralela con semilla encuentra todas las soluciones */
+		Sudoku empty = new Sudoku(new Cache(2));
+		Assert.assertEquals(new ParallelSolutions(empty, SearchConfig.seeded(7)).count(), 288);
+		Assert.assertEquals(new ParallelSolutions(empty, SearchConfig.ORDERED).count(), 288);
+	}
 }
@@ -0,0 +1,141 @@
+package es.nextiraone.ing.sudoku.test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.nextiraone.ing.sudoku.core.DeadEndException;
+import es.nextiraone.ing.sudoku.core.Sudoku;
+import es.nextiraone.ing.sudoku.server.LoadClient;
+import es.nextiraone.ing.sudoku.server.SolverServer;
+
+
+public class SolverServerTest extends SudokuBase {
+
+	private static final String EMPTY =
+		"000000000000000000000000000000000000000000000000000000000000000000000000000000000";
+	private static final String CLASH =
+		"110000000000000000000000000000000000000000000000000000000000000000000000000000000";
+
+	private SolverServer server;
+
+	@Override
+	protected void mySetUp() {
+		try {
+			server = new SolverServer(new InetSocketAddress("127.0.0.1", 0));
+		} catch(IOException exc) {
+			throw new IllegalStateException(exc);
+		}
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private URL url(String path) throws IOException {
+		return new URL("http://127.0.0.1:" + server.getPort() + path);
+	}
+
+	private String[] post(String path, String... lines) throws IOException {
+		StringBuilder body = new StringBuilder();
+		for(String line: lines) {
+			body.append(line).append('\n');
+		}
+		return LoadClient.post(url(path), body.toString()).split("\n");
+	}
+
+	@Test
+	public void testSolve() throws IOException, DeadEndException {
+		/** Una linea de respuesta por sudoku, en el mismo orden */
+		String[] reply = post("/solve", UNIQUE, "# comentario", "", CLASH, "123", "hello", UNIQUE);
+		Assert.assertEquals(reply.length, 5);
+		Sudoku solution = Sudoku.fromString(cache, UNIQUE).solve();
+		StringBuilder expected = new StringBuilder();
+		for(int offset = 0; offset < cache.CELLS; offset++) {
+			expected.append(solution.getValue(offset));
+		}
+		Assert.assertEquals(reply[0], expected.toString());
+		Assert.assertEquals(reply[1], "-");
+		Assert.assertEquals(reply[2].startsWith("error"), true);
+		Assert.assertEquals(reply[3].startsWith("error"), true);
+		Assert.assertEquals(reply[4], reply[0]);
+		/* Un valor fuera de rango tampoco afecta al resto del lote */
+		reply = post("/solve?side=2", "5000000000000000", "0000000000000000");
+		Assert.assertEquals(reply.length, 2);
+		Assert.assertEquals(reply[0].startsWith("error"), true);
+		Assert.assertEquals(reply[1].length(), 16);
+	}
+
+	@Test
+	public void testCountAndValidate() throws IOException {
+		/** Cuenta hasta el limite, y valida sin pasar de dos soluciones */
+		Assert.assertEquals(post("/count?side=2", "0000000000000000")[0], "288");
+		Assert.assertEquals(post("/count?limit=10", EMPTY)[0], "10+");
+		Assert.assertEquals(Arrays.asList(post("/validate", UNIQUE, EMPTY, CLASH)),
+				Arrays.asList("unique", "multiple", "none"));
+	}
+
+	@Test
+	public void testBudget() throws IOException {
+		/** Sin presupuesto de nodos, las busquedas se cortan con "?" */
+		HttpURLConnection connection = (HttpURLConnection) url("/count?limit=100000&nodes=50").openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.getOutputStream().write((EMPTY + "\n" + EMPTY + "\n").getBytes("US-ASCII"));
+		Assert.assertEquals(connection.getResponseCode(), 200);
+		Assert.assertEquals(connection.getHeaderField("X-Budget-Exceeded"), "true");
+		Assert.assertEquals(connection.getHeaderField("X-Nodes"), "50");
+		connection.disconnect();
+	}
+
+	@Test
+	public void testGenerateBudget() throws IOException {
+		/** El presupuesto tambien corta la generacion, y cuenta sus nodos */
+		HttpURLConnection connection = (HttpURLConnection) url("/generate?n=2&difficulty=hard&seed=5&nodes=100").openConnection();
+		Assert.assertEquals(connection.getResponseCode(), 200);
+		Assert.assertEquals(connection.getHeaderField("X-Budget-Exceeded"), "true");
+		Assert.assertEquals(connection.getHeaderField("X-Nodes"), "100");
+		connection.disconnect();
+		Assert.assertEquals(Arrays.asList(post("/generate?n=2&difficulty=hard&seed=5&nodes=100")),
+				Arrays.asList("?", "?"));
+	}
+
+	@Test
+	public void testGenerate() throws IOException {
+		/** Con semilla, la generacion es reproducible y los sudokus tienen solucion unica */
+		String[] first  = post("/generate?n=2&difficulty=easy&seed=5");
+		String[] second = post("/generate?n=2&difficulty=easy&seed=5");
+		Assert.assertEquals(first.length, 2);
+		Assert.assertEquals(Arrays.asList(first), Arrays.asList(second));
+		String given = first[0].split("\\s+")[0];
+		Assert.assertEquals(post("/validate", given)[0], "unique");
+	}
+
+	@Test
+	public void testErrors() throws IOException {
+		/** Metodo no admitido y parametros invalidos */
+		HttpURLConnection connection = (HttpURLConnection) url("/solve").openConnection();
+		Assert.assertEquals(connection.getResponseCode(), 405);
+		connection.disconnect();
+		connection = (HttpURLConnection) url("/generate?difficulty=imposible").openConnection();
+		Assert.assertEquals(connection.getResponseCode(), 400);
+		connection.disconnect();
+	}
+
+	@Test
+	public void testLoad() throws IOException, InterruptedException {
+		/** El cliente de carga completa todas las peticiones */
+		LoadClient.Report report = LoadClient.run(url("/solve"), Arrays.asList(UNIQUE, EMPTY), 4, 40, 3);
+		Assert.assertEquals(report.getRequests(), 40);
+		Assert.assertEquals(report.getErrors(), 0L);
+		Assert.assertEquals(report.getPercentile(50) <= report.getPercentile(99), true);
+	}
+}
@@ -8,6 +8,12 @@ import es.nextiraone.ing.sudoku.core.Sudoku;
 
 public abstract class SudokuBase {
 
+	// sudoku de 9x9 con solucion unica, comun a varios tests
+	protected static final String UNIQUE =
+		"0 0 3 0 2 0 6 0 0  9 0 0 3 0 5 0 0 1  0 0 1 8 0 6 4 0 0 " +
+		"0 0 8 1 0 2 9 0 0  7 0 0 0 0 0 0 0 8  0 0 6 7 0 8 2 0 0 " +
+		"0 0 2 6 0 9 5 0 0  8 0 0 2 0 3 0 0 9  0 0 5 0 1 0 3 0 0";
+
 	protected Cache cache;
 	protected Sudoku sudoku;
 	protected int size;
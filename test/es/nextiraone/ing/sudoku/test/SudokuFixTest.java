@@ -5,6 +5,9 @@ import org.junit.Test;
 
 import es.nextiraone.ing.sudoku.core.DeadEndException;
 import es.nextiraone.ing.sudoku.core.Fix;
+import es.nextiraone.ing.sudoku.core.NakedSubsets;
+import es.nextiraone.ing.sudoku.core.Pipeline;
+import es.nextiraone.ing.sudoku.core.Strategy;
 
 
 public class SudokuFixTest extends SudokuBase {
@@ -97,4 +100,83 @@ public class SudokuFixTest extends SudokuBase {
 		Assert.assertEquals(cell.getLength(), 1);
 		Assert.assertEquals(cell.getValue(),  1);
 	}
+
+	@Test
+	public void testFixFindsHiddenSingle() throws DeadEndException {
+		/** Comprueba que la propagacion encuentra los "hidden singles".
+		 *
+		 * Es el mismo caso que testFixDoesCombine, pero sin ninguna
+		 * estrategia en la heuristica: el "1" del primer cuadro solo
+		 * puede ir en una celda, y fix lo detecta al propagar.
+		 */
+		sudoku.setPipeline(new Pipeline());
+		sudoku.fix(new Fix(cache, 0, 3, 1));
+		sudoku.fix(new Fix(cache, 1, 6, 1));
+		sudoku.fix(new Fix(cache, 3, 0, 1));
+		sudoku.fix(new Fix(cache, 6, 1, 1));
+		cell = sudoku.getAt(2, 2);
+		Assert.assertEquals(cell.getLength(), 1);
+		Assert.assertEquals(cell.getValue(),  1);
+	}
+
+	@Test
+	public void testDeadEndBoundary() throws DeadEndException {
+		/** Fuera del motor, cada camino sin salida es una excepcion nueva y con traza */
+		sudoku.fix(0, 1);
+		DeadEndException first = null, second = null;
+		try {
+			sudoku.fix(1, 1);
+		} catch(DeadEndException exc) {
+			first = exc;
+		}
+		try {
+			sudoku.fix(9, 1);
+		} catch(DeadEndException exc) {
+			second = exc;
+		}
+		Assert.assertNotNull(first);
+		Assert.assertNotNull(second);
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(first.getStackTrace().length > 0, true);
+	}
+
+	private DeadEndException applyAll(Strategy strategy) {
+		/** Aplica la estrategia a todos los grupos, y devuelve la excepcion que lance */
+		try {
+			for(int unit = 0; unit < cache.UNITS; unit++)
+				strategy.apply(sudoku, unit);
+		} catch(DeadEndException exc) {
+			return exc;
+		}
+		return null;
+	}
+
+	@Test
+	public void testPublicApplyBoundary() throws DeadEndException {
+		/** Pipeline.apply y Strategy.apply tampoco dejan salir la excepcion compartida */
+		for(int col = 3; col < 7; col++) {
+			sudoku.fix(col, col);
+		}
+		/* Tres celdas de la fila 0 solo pueden ser 8 o 9. No hay
+		 * singles, asi que fix no lo ve, pero las parejas si.
+		 */
+		sudoku.fix(size + 0, 1);
+		sudoku.fix(size + 1, 2);
+		sudoku.fix(size + 2, 7);
+		Strategy pairs = NakedSubsets.PAIRS;
+		DeadEndException first  = applyAll(pairs);
+		DeadEndException second = applyAll(pairs);
+		Assert.assertNotNull(first);
+		Assert.assertNotNull(second);
+		Assert.assertNotSame(first, second);
+		DeadEndException third = null;
+		try {
+			Pipeline.FULL.apply(sudoku);
+		} catch(DeadEndException exc) {
+			third = exc;
+		}
+		Assert.assertNotNull(third);
+		Assert.assertNotSame(third, first);
+		Assert.assertNotSame(third, second);
+	}
 }